@@ -0,0 +1,122 @@
+package benchmarks;
+
+import arc.*;
+import arc.backend.headless.*;
+import arc.files.*;
+import arc.util.*;
+import arc.util.Log.*;
+import mindustry.*;
+import mindustry.content.*;
+import mindustry.core.*;
+import mindustry.core.GameState.*;
+import mindustry.maps.*;
+import mindustry.mod.*;
+import mindustry.net.*;
+import mindustry.world.*;
+
+import static mindustry.Vars.*;
+
+/** Boots a headless game instance for benchmarks, the same way ApplicationTests does. */
+public class BenchmarkWorld{
+    //core/assets
+    static final Fi dataFolder = new Fi("../../benchmarks/build/bench_data");
+    static boolean initialized;
+
+    /** Starts the headless application. Only does anything the first time it is called in a JVM. */
+    public static synchronized void launch(){
+        if(initialized) return;
+        initialized = true;
+
+        boolean[] begins = {false};
+        Throwable[] exceptionThrown = {null};
+        Log.useColors = false;
+        Log.level = LogLevel.warn;
+
+        ApplicationCore core = new ApplicationCore(){
+            @Override
+            public void setup(){
+                dataFolder.deleteDirectory();
+
+                Core.settings.setDataDirectory(dataFolder);
+                headless = true;
+                net = new Net(null);
+                tree = new FileTree();
+                Vars.init();
+                world = new World(){
+                    @Override
+                    public float getDarkness(int x, int y){
+                        //for world borders
+                        return 0;
+                    }
+                };
+                content.createBaseContent();
+                mods.loadScripts();
+                content.createModContent();
+
+                add(logic = new Logic());
+                add(netServer = new NetServer());
+
+                content.init();
+
+                mods.eachClass(Mod::init);
+            }
+
+            @Override
+            public void init(){
+                super.init();
+                begins[0] = true;
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        new HeadlessApplication(core, throwable -> exceptionThrown[0] = throwable);
+
+        try{
+            while(!begins[0]){
+                if(exceptionThrown[0] != null){
+                    throw new RuntimeException(exceptionThrown[0]);
+                }
+                Thread.sleep(10);
+            }
+        }catch(InterruptedException e){
+            throw new RuntimeException(e);
+        }
+
+        //benchmarks assume a fixed frame time
+        Time.setDeltaProvider(() -> 1f);
+    }
+
+    /** Loads one of the bundled maps and starts playing it. */
+    public static void loadMap(String name){
+        launch();
+
+        logic.reset();
+        Map map = maps.loadInternalMap(name);
+        world.loadMap(map);
+        state.set(State.playing);
+        state.rules.limitMapArea = false;
+    }
+
+    /** Creates an empty stone map of the specified size and starts playing it. */
+    public static void emptyMap(int width, int height){
+        launch();
+
+        logic.reset();
+        Tiles tiles = world.resize(width, height);
+        world.beginMapLoad();
+        for(int i = 0; i < tiles.width * tiles.height; i++){
+            tiles.seti(i, new Tile(i % width, i / width, Blocks.stone, Blocks.air, Blocks.air));
+        }
+        world.endMapLoad();
+        state.set(State.playing);
+        state.rules.limitMapArea = false;
+    }
+
+    /** Runs the game logic for the specified amount of frames, e.g. to let a map settle before measuring. */
+    public static void simulate(int frames){
+        for(int i = 0; i < frames; i++){
+            Time.update();
+            logic.update();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import arc.math.*;
+import arc.util.*;
+import mindustry.content.*;
+import mindustry.entities.*;
+import mindustry.entities.bullet.*;
+import mindustry.game.*;
+import mindustry.gen.*;
+import mindustry.world.blocks.defense.turrets.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Cost of the bullet lifecycle: creation, movement, collisions, hits, fragments and lightning.
+ * Each operation simulates one second in which 10 000 bullets are fired into a crowd of enemy units that cannot die.
+ * Run with {@code -PjmhArgs="['-prof','gc']"} and compare {@code gc.alloc.rate.norm}, which is the number of bytes allocated per simulated second.
+ * Ammo is given as {@code turret/item}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulletBenchmark{
+    static final int bulletsPerSecond = 10000, targets = 200;
+
+    @Param({"duo/copper", "duo/silicon", "ripple/plastanium", "swarmer/surge-alloy"})
+    public String ammo;
+
+    BulletType type;
+    Rand rand = new Rand(1);
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkWorld.emptyMap(100, 100);
+
+        String[] split = ammo.split("/");
+        type = ((ItemTurret)content.block(split[0])).ammoTypes.get(content.item(split[1]));
+
+        //hits should keep happening for the whole benchmark
+        state.rules.teams.get(Team.crux).unitHealthMultiplier = 1000000f;
+        for(int i = 0; i < targets; i++){
+            UnitTypes.dagger.spawn(Team.crux, (60f + rand.random(20f)) * tilesize, (40f + rand.random(20f)) * tilesize);
+        }
+
+        //let the bullets in flight settle
+        second();
+    }
+
+    @Benchmark
+    public void second(){
+        float x = 20f * tilesize, y = 50f * tilesize;
+        for(int i = 0; i < 60; i++){
+            int count = (i + 1) * bulletsPerSecond / 60 - i * bulletsPerSecond / 60;
+            for(int j = 0; j < count; j++){
+                type.create(null, Team.sharded, x, y, rand.range(20f));
+            }
+
+            Time.update();
+            Groups.update();
+
+            //posted tasks do not run in benchmarks
+            Damage.applyTileDamage();
+            BulletType.createDelayedFrags();
+        }
+    }
+}
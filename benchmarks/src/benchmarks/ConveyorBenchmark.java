@@ -0,0 +1,57 @@
+package benchmarks;
+
+import mindustry.content.*;
+import mindustry.game.*;
+import mindustry.gen.*;
+import mindustry.world.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/** Measures updating saturated rows of titanium conveyors fed by item sources and drained by voids. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConveyorBenchmark{
+    @Param({"100"})
+    public int length;
+    @Param({"50"})
+    public int rows;
+
+    Building[] conveyors;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkWorld.emptyMap(length + 2, rows * 2);
+
+        conveyors = new Building[length * rows];
+        for(int row = 0; row < rows; row++){
+            int y = row * 2;
+            Tile source = world.tile(0, y);
+            source.setBlock(Blocks.itemSource, Team.sharded);
+            source.build.configureAny(Items.copper);
+
+            for(int x = 1; x <= length; x++){
+                world.tile(x, y).setBlock(Blocks.titaniumConveyor, Team.sharded, 0);
+                conveyors[row * length + x - 1] = world.tile(x, y).build;
+            }
+
+            world.tile(length + 1, y).setBlock(Blocks.itemVoid, Team.sharded);
+        }
+
+        //fill the lines up
+        BenchmarkWorld.simulate(600);
+    }
+
+    @Benchmark
+    public void updateTile(){
+        for(Building build : conveyors){
+            build.updateTile();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package benchmarks;
+
+import mindustry.gen.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/** Measures a full entity update on bundled maps, after a few waves have spawned. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupsUpdateBenchmark{
+    @Param({"groundZero", "frozenForest", "craters"})
+    public String map;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkWorld.loadMap(map);
+
+        for(int i = 0; i < 5; i++){
+            logic.runWave();
+        }
+        BenchmarkWorld.simulate(120);
+    }
+
+    @Benchmark
+    public void update(){
+        Groups.update();
+    }
+}
@@ -0,0 +1,44 @@
+package benchmarks;
+
+import mindustry.logic.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import java.util.concurrent.*;
+
+/** Measures instruction throughput of a detached logic executor running a typical arithmetic/jump loop. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogicBenchmark{
+    static final String program =
+    "set i 0\n" +
+    "op add i i 1\n" +
+    "op mul x i 2.5\n" +
+    "op sin y x\n" +
+    "op max z x y\n" +
+    "jump 1 lessThan i 1000\n" +
+    "set result z\n";
+
+    LExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkWorld.launch();
+
+        executor = new LExecutor();
+        executor.load(LAssembler.assemble(program, false));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public void runOnce(Blackhole hole){
+        for(int i = 0; i < 100; i++){
+            executor.runOnce();
+        }
+        hole.consume(executor.counter.numval);
+    }
+}
@@ -0,0 +1,128 @@
+package benchmarks;
+
+import arc.util.*;
+import arc.util.io.*;
+import mindustry.io.*;
+import mindustry.io.versions.*;
+import net.jpountz.lz4.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Compares the interleaved per-tile map encoding of {@link Save8} with the layered encoding of {@link Save10} on every bundled map.
+ * Encoded sizes, raw and compressed the way each version stores them, are printed once per map at the end of the trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class MapEncodingBenchmark{
+    @Param({
+        "aegis", "archipelago", "atlas", "basin", "biomassFacility", "caldera-erekir", "caldera", "canyon", "coastline", "craters",
+        "crevice", "crossroads", "debrisField", "desolateRift", "domain", "extractionOutpost", "fork", "fortress", "frozenForest",
+        "fungalPass", "glacier", "groundZero", "impact0078", "intersect", "islands", "karst", "labyrinth", "lake", "marsh", "maze",
+        "moltenLake", "mudFlats", "navalFortress", "nuclearComplex", "onset", "origin", "overgrowth", "passage", "peaks",
+        "planetaryTerminal", "ravine", "ruinousShores", "saltFlats", "shattered", "siege", "split", "stainedMountains", "stronghold",
+        "tarFields", "tendrils", "triad", "veins", "wasteland", "windsweptIslands"
+    })
+    public String map;
+
+    Save8 legacy;
+    Save10 layered;
+
+    ReusableByteOutStream out = new ReusableByteOutStream();
+    DataOutputStream data = new DataOutputStream(out);
+    byte[] legacyMap, layeredFloors, layeredBlocks;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException{
+        BenchmarkWorld.loadMap(map);
+        legacy = (Save8)SaveIO.getSaveWriter(8);
+        layered = (Save10)SaveIO.getSaveWriter(10);
+
+        legacyMap = writeLegacy();
+        out.reset();
+        layered.writeFloorFrame(data);
+        layeredFloors = copy();
+        out.reset();
+        layered.writeBlockFrame(data);
+        layeredBlocks = copy();
+    }
+
+    @TearDown(Level.Trial)
+    public void report(){
+        LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+        int layeredSize = layeredFloors.length + layeredBlocks.length;
+        int layeredCompressed = compressor.compress(layeredFloors).length + compressor.compress(layeredBlocks).length;
+
+        System.out.println(Strings.format("\n[@] @x@: Save8 map @ bytes (@ deflated), Save10 map @ bytes (@ lz4)",
+            map, world.width(), world.height(), legacyMap.length, deflatedSize(legacyMap), layeredSize, layeredCompressed));
+    }
+
+    @Benchmark
+    public int writeLegacy8() throws IOException{
+        return writeLegacy().length;
+    }
+
+    @Benchmark
+    public int writeLayered10() throws IOException{
+        out.reset();
+        layered.writeFloorFrame(data);
+        layered.writeBlockFrame(data);
+        return out.size();
+    }
+
+    @Benchmark
+    public void readLegacy8() throws IOException{
+        legacy.readMap(new DataInputStream(new ByteArrayInputStream(legacyMap)), world.context);
+    }
+
+    @Benchmark
+    public void readLayered10() throws IOException{
+        DataInputStream floors = new DataInputStream(new ByteArrayInputStream(layeredFloors));
+        DataInputStream blocks = new DataInputStream(new ByteArrayInputStream(layeredBlocks));
+        int width = floors.readUnsignedShort(), height = floors.readUnsignedShort();
+
+        world.context.begin();
+        try{
+            world.context.resize(width, height);
+            layered.readFloorFrame(floors, world.context, width, height);
+            layered.readBlockFrame(blocks, world.context, width, height);
+        }finally{
+            world.context.end();
+        }
+    }
+
+    byte[] writeLegacy() throws IOException{
+        out.reset();
+        legacy.writeMap(data);
+        return copy();
+    }
+
+    byte[] copy(){
+        byte[] result = new byte[out.size()];
+        System.arraycopy(out.getBytes(), 0, result, 0, result.length);
+        return result;
+    }
+
+    static int deflatedSize(byte[] bytes){
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(bytes);
+        deflater.finish();
+
+        byte[] buffer = new byte[8192];
+        int total = 0;
+        while(!deflater.finished()){
+            total += deflater.deflate(buffer);
+        }
+        deflater.end();
+        return total;
+    }
+}
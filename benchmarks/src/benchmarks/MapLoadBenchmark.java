@@ -0,0 +1,48 @@
+package benchmarks;
+
+import arc.files.*;
+import mindustry.io.*;
+import mindustry.io.SaveIO.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import static mindustry.Vars.*;
+
+/** Compares loading bundled maps through an inflating stream with inflating the whole file into a buffer first. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class MapLoadBenchmark{
+    @Param({
+        "aegis", "archipelago", "atlas", "basin", "biomassFacility", "caldera-erekir", "caldera", "canyon", "coastline", "craters",
+        "crevice", "crossroads", "debrisField", "desolateRift", "domain", "extractionOutpost", "fork", "fortress", "frozenForest",
+        "fungalPass", "glacier", "groundZero", "impact0078", "intersect", "islands", "karst", "labyrinth", "lake", "marsh", "maze",
+        "moltenLake", "mudFlats", "navalFortress", "nuclearComplex", "onset", "origin", "overgrowth", "passage", "peaks",
+        "planetaryTerminal", "ravine", "ruinousShores", "saltFlats", "shattered", "siege", "split", "stainedMountains", "stronghold",
+        "tarFields", "tendrils", "triad", "veins", "wasteland", "windsweptIslands"
+    })
+    public String map;
+
+    Fi file;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkWorld.launch();
+        file = tree.get("maps/" + map + "." + mapExtension);
+    }
+
+    @Benchmark
+    public void loadStream() throws SaveException{
+        SaveIO.load(new InflaterInputStream(file.read(bufferSize)), world.context);
+    }
+
+    @Benchmark
+    public void loadBuffer() throws SaveException{
+        SaveIO.load(file, world.context);
+    }
+}
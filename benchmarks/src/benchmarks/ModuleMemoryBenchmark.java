@@ -0,0 +1,75 @@
+package benchmarks;
+
+import arc.struct.*;
+import mindustry.gen.*;
+import mindustry.world.modules.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Heap cost of the item and liquid modules of every building on large maps.
+ * Each benchmark allocates one set of modules per building; run with {@code -PjmhArgs="['-prof','gc']"} and compare
+ * {@code gc.alloc.rate.norm}, which is the number of bytes allocated per operation.
+ * {@link #dense()} allocates the per-building arrays that modules used before they had a compact representation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModuleMemoryBenchmark{
+    @Param({"nuclearComplex", "planetaryTerminal", "impact0078", "desolateRift"})
+    public String map;
+
+    Seq<Building> builds = new Seq<>();
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkWorld.loadMap(map);
+        BenchmarkWorld.simulate(60);
+        builds.clear();
+        Groups.build.copy(builds);
+    }
+
+    @Benchmark
+    public Object compact(){
+        Object[] out = new Object[builds.size * 2];
+        for(int i = 0; i < builds.size; i++){
+            Building build = builds.items[i];
+            if(build.items != null){
+                ItemModule items = new ItemModule();
+                items.add(build.items);
+                out[i * 2] = items;
+            }
+            if(build.liquids != null){
+                LiquidModule liquids = new LiquidModule();
+                build.liquids.each(liquids::add);
+                out[i * 2 + 1] = liquids;
+            }
+        }
+        return out;
+    }
+
+    @Benchmark
+    public Object dense(){
+        Object[] out = new Object[builds.size * 2];
+        for(int i = 0; i < builds.size; i++){
+            Building build = builds.items[i];
+            if(build.items != null){
+                int[] items = new int[content.items().size];
+                build.items.each((item, amount) -> items[item.id] = amount);
+                out[i * 2] = items;
+            }
+            if(build.liquids != null){
+                float[] liquids = new float[content.liquids().size];
+                build.liquids.each((liquid, amount) -> liquids[liquid.id] = amount);
+                out[i * 2 + 1] = liquids;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import arc.util.*;
+import mindustry.ai.*;
+import mindustry.ai.Pathfinder.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/** Measures a full recomputation of the ground enemy core flowfield. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathfinderBenchmark{
+    @Param({"groundZero", "frozenForest", "craters"})
+    public String map;
+
+    Flowfield field;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkWorld.loadMap(map);
+
+        //the pathfinding thread would otherwise update the same field concurrently
+        Reflect.invoke(Pathfinder.class, pathfinder, "stop", new Object[]{});
+        field = pathfinder.getField(state.rules.waveTeam, Pathfinder.costGround, Pathfinder.fieldCore);
+        Reflect.invoke(Pathfinder.class, pathfinder, "preloadPath", new Object[]{field}, Flowfield.class);
+    }
+
+    @Benchmark
+    public void updateFrontier(){
+        Reflect.invoke(Pathfinder.class, pathfinder, "updateTargets", new Object[]{field}, Flowfield.class);
+        Reflect.invoke(Pathfinder.class, pathfinder, "updateFrontier", new Object[]{field, -1L}, Flowfield.class, long.class);
+    }
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import mindustry.content.*;
+import mindustry.game.*;
+import mindustry.world.blocks.power.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/** Measures a single update of one large power graph made of solar panels, batteries and menders. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PowerGraphBenchmark{
+    @Param({"32", "100"})
+    public int size;
+
+    PowerGraph graph;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkWorld.emptyMap(size, size);
+
+        //alternating columns, so every consumer is adjacent to a battery
+        for(int x = 0; x < size; x++){
+            for(int y = 0; y < size; y++){
+                world.tile(x, y).setBlock(switch(x % 3){
+                    case 0 -> Blocks.solarPanel;
+                    case 1 -> Blocks.battery;
+                    default -> Blocks.mender;
+                }, Team.sharded, 0);
+            }
+        }
+
+        graph = world.build(1, 1).power.graph;
+        BenchmarkWorld.simulate(10);
+    }
+
+    @Benchmark
+    public void update(){
+        graph.update();
+    }
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import arc.util.io.*;
+import mindustry.io.*;
+import mindustry.io.SaveIO.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import static mindustry.Vars.*;
+
+/** Measures writing and reading a full compressed save of bundled maps through an in-memory stream. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveIOBenchmark{
+    @Param({"groundZero", "frozenForest", "craters"})
+    public String map;
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] saved;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkWorld.loadMap(map);
+        BenchmarkWorld.simulate(60);
+
+        SaveIO.write(new FastDeflaterOutputStream(out), null);
+        saved = out.toByteArray();
+    }
+
+    @Benchmark
+    public int write(){
+        out.reset();
+        SaveIO.write(new FastDeflaterOutputStream(out), null);
+        return out.size();
+    }
+
+    @Benchmark
+    public void read() throws SaveException{
+        SaveIO.load(new InflaterInputStream(new ByteArrayInputStream(saved)), world.context);
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import mindustry.content.*;
+import mindustry.game.*;
+import mindustry.gen.*;
+import mindustry.net.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/** Measures writing an entity snapshot for a single player with a few hundred units on the map. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark{
+    @Param({"groundZero"})
+    public String map;
+    @Param({"500"})
+    public int units;
+
+    Player player;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkWorld.loadMap(map);
+
+        for(int i = 0; i < units; i++){
+            UnitTypes.dagger.spawn(Team.sharded, (i % 50) * 8f, (i / 50) * 8f);
+        }
+
+        player = Player.create();
+        player.team(Team.sharded);
+        //packets are discarded; only serialization is measured
+        player.con = new NetConnection("127.0.0.1"){
+            @Override
+            public void send(Object object, boolean reliable){
+
+            }
+
+            @Override
+            public void close(){
+
+            }
+        };
+        player.add();
+
+        BenchmarkWorld.simulate(2);
+    }
+
+    @Benchmark
+    public void writeEntitySnapshot() throws IOException{
+        netServer.writeEntitySnapshot(player);
+    }
+}
@@ -232,6 +232,7 @@ public class Vars implements Loadable{
     public static AsyncCore asyncCore;
     public static BaseRegistry bases;
     public static GlobalVars logicVars;
+    public static LProfiler logicProfiler;
     public static MapEditor editor;
     public static GameService service = new GameService();
 
@@ -317,6 +318,7 @@ public class Vars implements Loadable{
         fogControl = new FogControl();
         bases = new BaseRegistry();
         logicVars = new GlobalVars();
+        logicProfiler = new LProfiler();
         javaPath =
             new Fi(OS.prop("java.home")).child("bin/java").exists() ? new Fi(OS.prop("java.home")).child("bin/java").absolutePath() :
             Core.files.local("jre/bin/java").exists() ? Core.files.local("jre/bin/java").absolutePath() : // Unix
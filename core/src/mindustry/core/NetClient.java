@@ -194,6 +194,16 @@ public class NetClient implements ApplicationListener{
         effect(effect, x, y, rotation, color);
     }
 
+    @Remote(variants = Variant.one, unreliable = true)
+    public static void effectBatch(byte[] data){
+        EffectBatcher.read(data, Effect::at);
+    }
+
+    @Remote(variants = Variant.one)
+    public static void effectBatchReliable(byte[] data){
+        EffectBatcher.read(data, Effect::at);
+    }
+
     @Remote(targets = Loc.server, variants = Variant.both)
     public static void sendMessage(String message, @Nullable String unformatted, @Nullable Player playersender){
         if(Vars.ui != null){
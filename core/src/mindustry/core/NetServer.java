@@ -46,6 +46,8 @@ public class NetServer implements ApplicationListener{
     private static final float correctDist = tilesize * 14f;
 
     public Administration admins = new Administration();
+    /** Effects sent to all players are culled to the view of each player and batched here. */
+    public EffectBatcher effects = new EffectBatcher();
     public CommandHandler clientCommands = new CommandHandler("/");
     public TeamAssigner assigner = (player, players) -> {
         if(state.rules.pvp){
@@ -853,6 +855,9 @@ public class NetServer implements ApplicationListener{
             }
 
             sync();
+            effects.flush();
+        }else{
+            effects.clear();
         }
     }
 
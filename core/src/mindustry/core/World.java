@@ -33,6 +33,8 @@ public class World{
     public Tiles tiles = new Tiles(0, 0);
     /** The number of times tiles have changed in this session. Used for blocks that need to poll world state, but not frequently. */
     public int tileChanges = -1;
+    /** Delayed and periodic work in world ticks. Cleared when a new map starts loading. */
+    public final TimerWheel timers = new TimerWheel();
 
     private boolean generating, invalidMap;
     private ObjectMap<Map, Runnable> customMapLoaders = new ObjectMap<>();
@@ -202,6 +204,8 @@ public class World{
      */
     public void beginMapLoad(){
         generating = true;
+        Building.resetSleeping();
+        timers.clear();
         Events.fire(new WorldLoadBeginEvent());
     }
 
@@ -17,21 +17,33 @@ import mindustry.graphics.*;
 import mindustry.type.*;
 import mindustry.world.*;
 
+import java.util.*;
+
 import static mindustry.Vars.*;
 
 /** Utility class for damaging in an area. */
 public class Damage{
     private static final UnitDamageEvent bulletDamageEvent = new UnitDamageEvent();
+    private static final UnitBulletDestroyEvent bulletDestroyEvent = new UnitBulletDestroyEvent();
     private static final Rect rect = new Rect();
     private static final Rect hitrect = new Rect();
     private static final Vec2 vec = new Vec2(), seg1 = new Vec2(), seg2 = new Vec2();
     private static final Seq<Unit> units = new Seq<>();
     private static final IntSet collidedBlocks = new IntSet();
-    private static final IntFloatMap damages = new IntFloatMap();
     private static final Seq<Collided> collided = new Seq<>();
     private static final Pool<Collided> collidePool = Pools.get(Collided.class, Collided::new);
     private static final Seq<Building> builds = new Seq<>();
     private static final FloatSeq distances = new FloatSeq();
+    private static final int maxRayTemplates = 256;
+    private static final IntMap<RayTemplate> rayTemplates = new IntMap<>();
+    private static final Seq<TileExplosion> tileExplosions = new Seq<>(), appliedExplosions = new Seq<>();
+    private static final Pool<TileExplosion> tileExplosionPool = Pools.get(TileExplosion.class, TileExplosion::new);
+    //area queries can nest when killed units explode, so each one takes its own pooled consumer instead of a new lambda
+    private static final Pool<UnitDamage> unitDamagePool = Pools.get(UnitDamage.class, UnitDamage::new);
+    private static final Pool<UnitStatus> unitStatusPool = Pools.get(UnitStatus.class, UnitStatus::new);
+    private static float[] cellDamage = {}, pathDealt = {};
+    private static int[] touchedCells = {};
+    private static boolean tileDamagePosted;
 
     private static Tile furthest;
     private static float maxDst = 0f;
@@ -457,13 +469,7 @@ public class Damage{
 
     /** Applies a status effect to all enemy units in a range. */
     public static void status(Team team, float x, float y, float radius, StatusEffect effect, float duration, boolean air, boolean ground){
-        Cons<Unit> cons = entity -> {
-            if(entity.team == team || !entity.checkTarget(air, ground) || !entity.hittable() || !entity.within(x, y, radius)){
-                return;
-            }
-
-            entity.apply(effect, duration);
-        };
+        UnitStatus cons = unitStatusPool.obtain().set(team, x, y, radius, effect, duration, air, ground);
 
         rect.setSize(radius * 2).setCenter(x, y);
         if(team != null){
@@ -471,6 +477,8 @@ public class Damage{
         }else{
             Units.nearby(rect, cons);
         }
+
+        unitStatusPool.free(cons);
     }
 
     /** Damages all entities and blocks in a radius that are enemies of the team. */
@@ -485,32 +493,7 @@ public class Damage{
 
     /** Damages all entities and blocks in a radius that are enemies of the team. */
     public static void damage(Team team, float x, float y, float radius, float damage, boolean complete, boolean air, boolean ground, boolean scaled, @Nullable Bullet source){
-        Cons<Unit> cons = unit -> {
-            if(unit.team == team  || !unit.checkTarget(air, ground) || !unit.hittable() || !unit.within(x, y, radius + (scaled ? unit.hitSize / 2f : 0f))){
-                return;
-            }
-
-            boolean dead = unit.dead;
-
-            float amount = calculateDamage(scaled ? Math.max(0, unit.dst(x, y) - unit.type.hitSize/2) : unit.dst(x, y), radius, damage);
-            unit.damage(amount);
-
-            if(source != null){
-                Events.fire(bulletDamageEvent.set(unit, source));
-                unit.controller().hit(source);
-
-                if(!dead && unit.dead){
-                    Events.fire(new UnitBulletDestroyEvent(unit, source));
-                }
-            }
-            //TODO better velocity displacement
-            float dst = vec.set(unit.x - x, unit.y - y).len();
-            unit.vel.add(vec.setLength((1f - dst / radius) * 2f / unit.mass()));
-
-            if(complete && damage >= 9999999f && unit.isPlayer()){
-                Events.fire(Trigger.exclusionDeath);
-            }
-        };
+        UnitDamage cons = unitDamagePool.obtain().set(team, x, y, radius, damage, complete, air, ground, scaled, source);
 
         rect.setSize(radius * 2).setCenter(x, y);
         if(team != null){
@@ -519,6 +502,8 @@ public class Damage{
             Units.nearby(rect, cons);
         }
 
+        unitDamagePool.free(cons);
+
         if(ground){
             if(!complete){
                 tileDamage(team, World.toTile(x), World.toTile(y), radius / tilesize, damage * (source == null ? 1f : source.type.buildingDamageMultiplier), source);
@@ -532,79 +517,115 @@ public class Damage{
         tileDamage(team, x, y, baseRadius, damage, null);
     }
 
+    /**
+     * Queues ray-cast damage to the buildings around a tile. Explosions queued during a frame are applied together at the start of the next one,
+     * in the order they were queued.
+     */
     public static void tileDamage(Team team, int x, int y, float baseRadius, float damage, @Nullable Bullet source){
-        Core.app.post(() -> {
-            var in = world.build(x, y);
-            //spawned inside a multiblock. this means that damage needs to be dealt directly.
-            //why? because otherwise the building would absorb everything in one cell, which means much less damage than a nearby explosion.
-            //this needs to be compensated
-            if(in != null && in.team != team && in.block.size > 1 && in.health > damage){
-                //deal the damage of an entire side, to be equivalent with maximum 'standard' damage
-                in.damage(team, damage * Math.min((in.block.size), baseRadius * 0.4f));
-                //no need to continue with the explosion
-                return;
-            }
+        tileExplosions.add(tileExplosionPool.obtain().set(team, x, y, baseRadius, damage, source));
 
-            //cap radius to prevent lag
-            float radius = Math.min(baseRadius, 100), rad2 = radius * radius;
-            int rays = Mathf.ceil(radius * 2 * Mathf.pi);
-            double spacing = Math.PI * 2.0 / rays;
-            damages.clear();
+        if(!tileDamagePosted){
+            tileDamagePosted = true;
+            Core.app.post(Damage::applyTileDamage);
+        }
+    }
 
-            //raycast from each angle
-            for(int i = 0; i <= rays; i++){
-                float dealt = 0f;
-                int startX = x;
-                int startY = y;
-                int endX = x + (int)(Math.cos(spacing * i) * radius), endY = y + (int)(Math.sin(spacing * i) * radius);
-
-                int xDist = Math.abs(endX - startX);
-                int yDist = -Math.abs(endY - startY);
-                int xStep = (startX < endX ? +1 : -1);
-                int yStep = (startY < endY ? +1 : -1);
-                int error = xDist + yDist;
+    /** Applies all queued tile damage right away. */
+    public static void applyTileDamage(){
+        tileDamagePosted = false;
 
-                while(startX != endX || startY != endY){
-                    var build = world.build(startX, startY);
-                    if(build != null && build.team != team){
-                        //damage dealt at circle edge
-                        float edgeScale = 0.6f;
-                        float mult = (1f-(Mathf.dst2(startX, startY, x, y) / rad2) + edgeScale) / (1f + edgeScale);
-                        float next = damage * mult - dealt;
-                        //register damage dealt
-                        int p = Point2.pack(startX, startY);
-                        damages.put(p, Math.max(damages.get(p), next));
-                        //register as hit
-                        dealt += build.health;
-
-                        if(next - dealt <= 0){
-                            break;
-                        }
-                    }
+        //explosions caused by destroyed buildings are queued for the next frame
+        appliedExplosions.addAll(tileExplosions);
+        tileExplosions.clear();
 
-                    if(2 * error - yDist > xDist - 2 * error){
-                        error += yDist;
-                        startX += xStep;
-                    }else{
-                        error += xDist;
-                        startY += yStep;
-                    }
+        for(var explosion : appliedExplosions){
+            castTileDamage(explosion.team, explosion.x, explosion.y, explosion.radius, explosion.damage, explosion.source);
+        }
+
+        tileExplosionPool.freeAll(appliedExplosions);
+        appliedExplosions.clear();
+    }
+
+    private static void castTileDamage(Team team, int x, int y, float baseRadius, float damage, @Nullable Bullet source){
+        var in = world.build(x, y);
+        //spawned inside a multiblock. this means that damage needs to be dealt directly.
+        //why? because otherwise the building would absorb everything in one cell, which means much less damage than a nearby explosion.
+        //this needs to be compensated
+        if(in != null && in.team != team && in.block.size > 1 && in.health > damage){
+            //deal the damage of an entire side, to be equivalent with maximum 'standard' damage
+            in.damage(team, damage * Math.min((in.block.size), baseRadius * 0.4f));
+            //no need to continue with the explosion
+            return;
+        }
+
+        //cap radius to prevent lag
+        RayTemplate template = rayTemplate(Math.min(baseRadius, 100));
+        int[] nodeCells = template.nodeCells, depths = template.depths, skips = template.skips;
+        if(cellDamage.length < template.cells){
+            cellDamage = new float[template.cells];
+            touchedCells = new int[template.cells];
+            Arrays.fill(cellDamage, -1f);
+        }
+        if(pathDealt.length < template.maxDepth + 1){
+            pathDealt = new float[template.maxDepth + 1];
+        }
+
+        int touched = 0;
+
+        //walk all rays at once; a node is only reached while the ray leading to it has damage left
+        for(int i = 0; i < nodeCells.length;){
+            int cell = nodeCells[i], depth = depths[i];
+            float dealt = depth == 0 ? 0f : pathDealt[depth - 1];
+
+            var build = world.build(x + template.cellX[cell], y + template.cellY[cell]);
+            if(build != null && build.team != team){
+                float next = damage * template.falloff[cell] - dealt;
+                //register damage dealt
+                if(cellDamage[cell] < 0f){
+                    touchedCells[touched++] = cell;
+                    cellDamage[cell] = Math.max(0f, next);
+                }else{
+                    cellDamage[cell] = Math.max(cellDamage[cell], next);
+                }
+                //register as hit
+                dealt += build.health;
+
+                if(next - dealt <= 0){
+                    i = skips[i];
+                    continue;
                 }
             }
 
-            //apply damage
-            for(var e : damages){
-                int cx = Point2.x(e.key), cy = Point2.y(e.key);
-                var build = world.build(cx, cy);
-                if(build != null){
-                    if(source != null){
-                        build.damage(source, team, e.value);
-                    }else{
-                        build.damage(team, e.value);
-                    }
+            pathDealt[depth] = dealt;
+            i++;
+        }
+
+        //apply damage
+        for(int i = 0; i < touched; i++){
+            int cell = touchedCells[i];
+            float amount = cellDamage[cell];
+            cellDamage[cell] = -1f;
+
+            var build = world.build(x + template.cellX[cell], y + template.cellY[cell]);
+            if(build != null){
+                if(source != null){
+                    build.damage(source, team, amount);
+                }else{
+                    build.damage(team, amount);
                 }
             }
-        });
+        }
+    }
+
+    private static RayTemplate rayTemplate(float radius){
+        int key = Float.floatToIntBits(radius);
+        RayTemplate template = rayTemplates.get(key);
+        if(template == null){
+            //radii of dynamic explosions are continuous, don't let them pile up
+            if(rayTemplates.size >= maxRayTemplates) rayTemplates.clear();
+            rayTemplates.put(key, template = new RayTemplate(radius));
+        }
+        return template;
     }
 
     private static void completeDamage(Team team, float x, float y, float radius, float damage){
@@ -631,6 +652,254 @@ public class Damage{
         return Math.max(damage - armor, minArmorDamage * damage);
     }
 
+    /**
+     * The Bresenham rays of a tile explosion with a certain radius, merged into a tree so that cells shared by the start of several rays are only walked once.
+     * Nodes are stored depth-first; skipping to {@link #skips} of a node skips every ray that continues past it.
+     */
+    static class RayTemplate{
+        /** Offset and damage falloff of each distinct cell. */
+        final short[] cellX, cellY;
+        final float[] falloff;
+        final int cells;
+        /** Cell, depth in its ray and index after the subtree of each node. */
+        final int[] nodeCells, depths, skips;
+        final int maxDepth;
+
+        RayTemplate(float radius){
+            float rad2 = radius * radius, edgeScale = 0.6f;
+            int rays = Mathf.ceil(radius * 2 * Mathf.pi);
+            double spacing = Math.PI * 2.0 / rays;
+
+            IntIntMap cellIndex = new IntIntMap();
+            IntSeq cellPos = new IntSeq(), nodeCell = new IntSeq(), firstChild = new IntSeq(), lastChild = new IntSeq(), nextSibling = new IntSeq();
+            int rootFirst = -1, rootLast = -1;
+
+            for(int i = 0; i <= rays; i++){
+                int cx = 0, cy = 0;
+                int endX = (int)(Math.cos(spacing * i) * radius), endY = (int)(Math.sin(spacing * i) * radius);
+
+                int xDist = Math.abs(endX);
+                int yDist = -Math.abs(endY);
+                int xStep = (0 < endX ? +1 : -1);
+                int yStep = (0 < endY ? +1 : -1);
+                int error = xDist + yDist;
+                int parent = -1;
+
+                while(cx != endX || cy != endY){
+                    int pos = Point2.pack(cx, cy);
+                    int cell = cellIndex.get(pos, -1);
+                    if(cell == -1){
+                        cellIndex.put(pos, cell = cellPos.size);
+                        cellPos.add(pos);
+                    }
+
+                    //find the child of the previous node that continues into this cell
+                    int node = parent == -1 ? rootFirst : firstChild.get(parent);
+                    while(node != -1 && nodeCell.get(node) != cell){
+                        node = nextSibling.get(node);
+                    }
+
+                    if(node == -1){
+                        node = nodeCell.size;
+                        nodeCell.add(cell);
+                        firstChild.add(-1);
+                        lastChild.add(-1);
+                        nextSibling.add(-1);
+
+                        int last = parent == -1 ? rootLast : lastChild.get(parent);
+                        if(last == -1){
+                            if(parent == -1) rootFirst = node; else firstChild.set(parent, node);
+                        }else{
+                            nextSibling.set(last, node);
+                        }
+                        if(parent == -1) rootLast = node; else lastChild.set(parent, node);
+                    }
+                    parent = node;
+
+                    if(2 * error - yDist > xDist - 2 * error){
+                        error += yDist;
+                        cx += xStep;
+                    }else{
+                        error += xDist;
+                        cy += yStep;
+                    }
+                }
+            }
+
+            cells = cellPos.size;
+            cellX = new short[cells];
+            cellY = new short[cells];
+            falloff = new float[cells];
+            for(int i = 0; i < cells; i++){
+                int x = Point2.x(cellPos.get(i)), y = Point2.y(cellPos.get(i));
+                cellX[i] = (short)x;
+                cellY[i] = (short)y;
+                //damage dealt at circle edge
+                falloff[i] = (1f - (Mathf.dst2(x, y, 0, 0) / rad2) + edgeScale) / (1f + edgeScale);
+            }
+
+            //flatten the tree depth-first
+            int nodes = nodeCell.size;
+            nodeCells = new int[nodes];
+            depths = new int[nodes];
+            skips = new int[nodes];
+
+            IntSeq stack = new IntSeq();
+            int index = 0, deepest = 0;
+            for(int root = rootFirst; root != -1; root = nextSibling.get(root)){
+                //node, depth; subtrees are closed when popped a second time
+                stack.add(root, 0);
+                while(!stack.isEmpty()){
+                    int depth = stack.pop(), node = stack.pop();
+                    if(node < 0){
+                        skips[-node - 1] = index;
+                        continue;
+                    }
+
+                    int flat = index++;
+                    nodeCells[flat] = nodeCell.get(node);
+                    depths[flat] = depth;
+                    deepest = Math.max(deepest, depth);
+                    stack.add(-flat - 1, depth);
+
+                    //push children in reverse so they come out in order
+                    int count = 0;
+                    for(int child = firstChild.get(node); child != -1; child = nextSibling.get(child)){
+                        stack.add(child, depth + 1);
+                        count++;
+                    }
+                    reverse(stack, count);
+                }
+            }
+            maxDepth = deepest;
+        }
+
+        /** Reverses the order of the last {@code count} node-depth pairs on a stack. */
+        static void reverse(IntSeq stack, int count){
+            int[] items = stack.items;
+            for(int i = 0, j = count - 1; i < j; i++, j--){
+                int a = stack.size - (count - i) * 2, b = stack.size - (count - j) * 2;
+                int node = items[a], depth = items[a + 1];
+                items[a] = items[b];
+                items[a + 1] = items[b + 1];
+                items[b] = node;
+                items[b + 1] = depth;
+            }
+        }
+    }
+
+    static class TileExplosion implements Pool.Poolable{
+        Team team;
+        int x, y;
+        float radius, damage;
+        @Nullable Bullet source;
+
+        TileExplosion set(Team team, int x, int y, float radius, float damage, @Nullable Bullet source){
+            this.team = team;
+            this.x = x;
+            this.y = y;
+            this.radius = radius;
+            this.damage = damage;
+            this.source = source;
+            return this;
+        }
+
+        @Override
+        public void reset(){
+            team = null;
+            source = null;
+        }
+    }
+
+    static class UnitDamage implements Cons<Unit>, Pool.Poolable{
+        Team team;
+        float x, y, radius, damage;
+        boolean complete, air, ground, scaled;
+        @Nullable Bullet source;
+
+        UnitDamage set(Team team, float x, float y, float radius, float damage, boolean complete, boolean air, boolean ground, boolean scaled, @Nullable Bullet source){
+            this.team = team;
+            this.x = x;
+            this.y = y;
+            this.radius = radius;
+            this.damage = damage;
+            this.complete = complete;
+            this.air = air;
+            this.ground = ground;
+            this.scaled = scaled;
+            this.source = source;
+            return this;
+        }
+
+        @Override
+        public void get(Unit unit){
+            if(unit.team == team  || !unit.checkTarget(air, ground) || !unit.hittable() || !unit.within(x, y, radius + (scaled ? unit.hitSize / 2f : 0f))){
+                return;
+            }
+
+            boolean dead = unit.dead;
+
+            float amount = calculateDamage(scaled ? Math.max(0, unit.dst(x, y) - unit.type.hitSize/2) : unit.dst(x, y), radius, damage);
+            unit.damage(amount);
+
+            if(source != null){
+                Events.fire(bulletDamageEvent.set(unit, source));
+                unit.controller().hit(source);
+
+                if(!dead && unit.dead){
+                    Events.fire(bulletDestroyEvent.set(unit, source));
+                }
+            }
+            //TODO better velocity displacement
+            float dst = vec.set(unit.x - x, unit.y - y).len();
+            unit.vel.add(vec.setLength((1f - dst / radius) * 2f / unit.mass()));
+
+            if(complete && damage >= 9999999f && unit.isPlayer()){
+                Events.fire(Trigger.exclusionDeath);
+            }
+        }
+
+        @Override
+        public void reset(){
+            team = null;
+            source = null;
+        }
+    }
+
+    static class UnitStatus implements Cons<Unit>, Pool.Poolable{
+        Team team;
+        float x, y, radius, duration;
+        StatusEffect effect;
+        boolean air, ground;
+
+        UnitStatus set(Team team, float x, float y, float radius, StatusEffect effect, float duration, boolean air, boolean ground){
+            this.team = team;
+            this.x = x;
+            this.y = y;
+            this.radius = radius;
+            this.effect = effect;
+            this.duration = duration;
+            this.air = air;
+            this.ground = ground;
+            return this;
+        }
+
+        @Override
+        public void get(Unit entity){
+            if(entity.team == team || !entity.checkTarget(air, ground) || !entity.hittable() || !entity.within(x, y, radius)){
+                return;
+            }
+
+            entity.apply(effect, duration);
+        }
+
+        @Override
+        public void reset(){
+            team = null;
+            effect = null;
+        }
+    }
+
     public static class Collided implements Pool.Poolable{
         public float x, y;
         public Teamc target;
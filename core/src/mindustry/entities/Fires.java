@@ -1,9 +1,12 @@
 package mindustry.entities;
 
 import arc.*;
+import arc.math.*;
+import arc.math.geom.*;
 import arc.util.*;
 import mindustry.content.*;
 import mindustry.game.EventType.*;
+import mindustry.game.*;
 import mindustry.gen.*;
 import mindustry.world.*;
 import mindustry.world.meta.*;
@@ -11,7 +14,109 @@ import mindustry.world.meta.*;
 import static mindustry.Vars.*;
 
 public class Fires{
-    private static final float baseLifetime = 1000f;
+    public static final float spreadDelay = 22f, fireballDelay = 40f;
+
+    private static final float baseLifetime = 1000f,
+        ticksPerFrame = (float)Fire.duration / Fire.frames, damageDelay = 40f, tileDamage = 1.8f, unitDamage = 3f;
+
+    /**
+     * Updates every fire in one pass over the regions of the map that hold fires, in tile order.
+     * Called once per tick before {@link Groups#update()}, which only advances the lifetime of fires.
+     */
+    public static void update(){
+        Tiles tiles = world.tiles;
+        RegionMask active = tiles.activeFires;
+        if(active.size() == 0) return;
+
+        //faster updates -> disappears more quickly
+        float speedMultiplier = 1f + Math.max(state.envAttrs.get(Attribute.water) * 10f, 0);
+        boolean client = net.client();
+
+        for(int region = 0, regions = active.regions(); region < regions; region++){
+            long bits = active.mask(region);
+            while(bits != 0){
+                int bit = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+
+                //fires may be removed by earlier ones in the same pass
+                Fire fire = tiles.getFire(active.tile(region, bit));
+                if(fire != null && fire.isAdded()){
+                    update(fire, speedMultiplier, client);
+                }
+            }
+        }
+    }
+
+    static void update(Fire fire, float speedMultiplier, boolean client){
+        fire.animation += Time.delta / ticksPerFrame;
+        fire.warmup += Time.delta;
+        fire.animation %= Fire.frames;
+
+        if(!headless){
+            control.sound.loop(Sounds.fire, fire, 0.07f);
+        }
+
+        fire.time = Mathf.clamp(fire.time + Time.delta * speedMultiplier, 0, fire.lifetime);
+
+        if(client){
+            return;
+        }
+
+        Tile tile = fire.tile;
+        if(fire.time >= fire.lifetime || tile == null || Float.isNaN(fire.lifetime)){
+            fire.remove();
+            return;
+        }
+
+        Building entity = tile.build;
+        boolean damage = entity != null;
+
+        //the flammability of the tile is sampled along with the puddle below it, instead of summing the contents of the building every tick
+        if(fire.tileFlammability < 0f){
+            updateFlammability(fire);
+        }
+
+        float flammability = fire.tileFlammability + fire.puddleFlammability;
+
+        if(!damage && flammability <= 0){
+            fire.time += Time.delta * 8;
+        }
+
+        if(damage){
+            fire.lifetime += Mathf.clamp(flammability / 8f, 0f, 0.6f) * Time.delta;
+        }
+
+        if(flammability > 1f && (fire.spreadTimer += Time.delta * Mathf.clamp(flammability / 5f, 0.3f, 2f)) >= spreadDelay){
+            fire.spreadTimer = 0f;
+            Point2 p = Geometry.d4[Mathf.random(3)];
+            Tile other = world.tile(tile.x + p.x, tile.y + p.y);
+            create(other);
+        }
+
+        if(flammability > 0 && (fire.fireballTimer += Time.delta * Mathf.clamp(flammability / 10f, 0f, 0.5f)) >= fireballDelay){
+            fire.fireballTimer = 0f;
+            Bullets.fireball.createNet(Team.derelict, fire.x, fire.y, Mathf.random(360f), -1f, 1, 1);
+        }
+
+        //apply damage to nearby units & building
+        if((fire.damageTimer += Time.delta) >= damageDelay){
+            fire.damageTimer = 0f;
+            updateFlammability(fire);
+
+            if(damage){
+                entity.damage(tileDamage);
+            }
+            Damage.damageUnits(null, tile.worldx(), tile.worldy(), tilesize, unitDamage,
+            unit -> !unit.isFlying() && !unit.isImmune(StatusEffects.burning),
+            unit -> unit.apply(StatusEffects.burning, 60 * 5));
+        }
+    }
+
+    static void updateFlammability(Fire fire){
+        Puddlec p = Puddles.get(fire.tile);
+        fire.tileFlammability = fire.tile.getFlammability();
+        fire.puddleFlammability = p != null ? p.getFlammability() / 3f : 0;
+    }
 
     /** Start a fire on the tile. If there already is a fire there, refreshes its lifetime. */
     public static void create(Tile tile){
@@ -76,6 +181,12 @@ public class Fires{
 
     public static void register(Fire fire){
         if(fire.tile != null){
+            //only one fire is updated per tile, so the one it replaces is dropped
+            Fire last = get(fire.tile);
+            if(last != null && last != fire){
+                last.detach();
+            }
+
             set(fire.tile, fire);
         }
     }
@@ -1,10 +1,12 @@
 package mindustry.entities;
 
+import arc.func.*;
 import arc.graphics.*;
 import arc.math.*;
 import arc.math.geom.*;
 import arc.struct.*;
 import arc.util.*;
+import arc.util.pooling.*;
 import mindustry.content.*;
 import mindustry.core.*;
 import mindustry.entities.bullet.*;
@@ -24,6 +26,27 @@ public class Lightning{
     private static boolean bhit = false;
     private static int lastSeed = 0;
 
+    /** Line points of the current branch, reused when no effect will keep them. */
+    private static final Seq<Vec2> tmpLines = new Seq<>();
+    private static Seq<Vec2> paramLines;
+    private static Team paramTeam;
+    private static @Nullable Bullet paramHitter;
+    private static final Geometry.Raycaster insulated = (wx, wy) -> {
+        Tile tile = world.tile(wx, wy);
+        if(tile != null && (tile.build != null && tile.build.isInsulated()) && tile.team() != paramTeam){
+            bhit = true;
+            //snap it instead of removing
+            paramLines.get(paramLines.size - 1).set(wx * tilesize, wy * tilesize);
+            return true;
+        }
+        return false;
+    };
+    private static final Cons<Unit> chainTarget = u -> {
+        if(!hit.contains(u.id()) && (paramHitter == null || u.checkTarget(paramHitter.type.collidesAir, paramHitter.type.collidesGround))){
+            entities.add(u);
+        }
+    };
+
     /** Create a lighting branch at a location. Use Team.derelict to damage everyone. */
     public static void create(Team team, Color color, float damage, float x, float y, float targetAngle, int length){
         createLightningInternal(null, lastSeed++, team, color, damage, x, y, targetAngle, length);
@@ -39,39 +62,30 @@ public class Lightning{
         hit.clear();
 
         BulletType hitCreate = hitter == null || hitter.type.lightningType == null ? Bullets.damageLightning : hitter.type.lightningType;
-        Seq<Vec2> lines = new Seq<>();
+        //the effect keeps its points, but servers never create it
+        boolean effect = Fx.lightning.shouldCreate();
+        Seq<Vec2> lines = effect ? new Seq<>() : tmpLines;
         bhit = false;
 
         for(int i = 0; i < length / 2; i++){
             hitCreate.create(null, team, x, y, rotation, damage * (hitter == null ? 1f : hitter.damageMultiplier()), 1f, 1f, hitter);
-            lines.add(new Vec2(x + Mathf.range(3f), y + Mathf.range(3f)));
+            lines.add((effect ? new Vec2() : Pools.obtain(Vec2.class, Vec2::new)).set(x + Mathf.range(3f), y + Mathf.range(3f)));
 
             if(lines.size > 1){
                 bhit = false;
                 Vec2 from = lines.get(lines.size - 2);
                 Vec2 to = lines.get(lines.size - 1);
-                World.raycastEach(World.toTile(from.getX()), World.toTile(from.getY()), World.toTile(to.getX()), World.toTile(to.getY()), (wx, wy) -> {
-
-                    Tile tile = world.tile(wx, wy);
-                    if(tile != null && (tile.build != null && tile.build.isInsulated()) && tile.team() != team){
-                        bhit = true;
-                        //snap it instead of removing
-                        lines.get(lines.size - 1).set(wx * tilesize, wy * tilesize);
-                        return true;
-                    }
-                    return false;
-                });
+                paramLines = lines;
+                paramTeam = team;
+                World.raycastEach(World.toTile(from.getX()), World.toTile(from.getY()), World.toTile(to.getX()), World.toTile(to.getY()), insulated);
                 if(bhit) break;
             }
 
             rect.setSize(hitRange).setCenter(x, y);
             entities.clear();
             if(hit.size < maxChain){
-                Units.nearbyEnemies(team, rect, u -> {
-                    if(!hit.contains(u.id()) && (hitter == null || u.checkTarget(hitter.type.collidesAir, hitter.type.collidesGround))){
-                        entities.add(u);
-                    }
-                });
+                paramHitter = hitter;
+                Units.nearbyEnemies(team, rect, chainTarget);
             }
 
             Unitc furthest = Geometry.findFurthest(x, y, entities);
@@ -87,6 +101,13 @@ public class Lightning{
             }
         }
 
-        Fx.lightning.at(x, y, rotation, color, lines);
+        if(effect){
+            Fx.lightning.at(x, y, rotation, color, lines);
+        }else{
+            Pools.freeAll(lines);
+            lines.clear();
+        }
+        paramLines = null;
+        paramHitter = null;
     }
 }
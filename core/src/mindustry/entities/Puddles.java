@@ -1,6 +1,8 @@
 package mindustry.entities;
 
+import arc.func.*;
 import arc.math.*;
+import arc.math.geom.*;
 import arc.util.*;
 import mindustry.*;
 import mindustry.content.*;
@@ -15,6 +17,110 @@ import static mindustry.Vars.*;
 public class Puddles{
     public static final float maxLiquid = 70f;
 
+    private static final Rect rect = new Rect(), rect2 = new Rect();
+
+    private static Puddle paramPuddle;
+    private static Cons<Unit> unitCons = unit -> {
+        if(unit.isGrounded() && !unit.hovering){
+            unit.hitbox(rect2);
+            if(rect.overlaps(rect2)){
+                unit.apply(paramPuddle.liquid.effect, 60 * 2);
+
+                if(unit.vel.len2() > 0.1f * 0.1f){
+                    Fx.ripple.at(unit.x, unit.y, unit.type.rippleScale, paramPuddle.liquid.color);
+                }
+            }
+        }
+    };
+
+    /**
+     * Updates every puddle in one pass over the regions of the map that hold puddles, in tile order.
+     * Called once per tick before {@link Groups#update()}; puddles have no update of their own.
+     */
+    public static void update(){
+        Tiles tiles = world.tiles;
+        RegionMask active = tiles.activePuddles;
+        if(active.size() == 0) return;
+
+        for(int region = 0, regions = active.regions(); region < regions; region++){
+            long bits = active.mask(region);
+            while(bits != 0){
+                int bit = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+
+                //puddles may be removed or replaced by earlier ones in the same pass
+                Puddle puddle = tiles.getPuddle(active.tile(region, bit));
+                if(puddle != null && puddle.isAdded()){
+                    update(puddle);
+                }
+            }
+        }
+    }
+
+    static void update(Puddle puddle){
+        Liquid liquid = puddle.liquid;
+        Tile tile = puddle.tile;
+        if(liquid == null || tile == null){
+            puddle.remove();
+            return;
+        }
+
+        float addSpeed = puddle.accepting > 0 ? 3f : 0f;
+
+        puddle.amount -= Time.delta * (1f - liquid.viscosity) / (5f + addSpeed);
+        puddle.amount += puddle.accepting;
+        puddle.amount = Math.min(puddle.amount, maxLiquid);
+        puddle.accepting = 0f;
+
+        if(puddle.amount >= maxLiquid / 1.5f){
+            float deposited = Math.min((puddle.amount - maxLiquid / 1.5f) / 4f, 0.3f * Time.delta);
+            int targets = 0;
+            for(Point2 point : Geometry.d4){
+                Tile other = world.tile(tile.x + point.x, tile.y + point.y);
+                if(other != null && (other.block() == Blocks.air || liquid.moveThroughBlocks)){
+                    targets ++;
+                    deposit(other, tile, liquid, deposited, false);
+                }
+            }
+            puddle.amount -= deposited * targets;
+        }
+
+        if(liquid.capPuddles){
+            puddle.amount = Mathf.clamp(puddle.amount, 0, maxLiquid);
+        }
+
+        float amount = puddle.amount;
+        if(amount <= 0f){
+            puddle.remove();
+            return;
+        }
+
+        //effects-only code
+        if(amount >= maxLiquid / 2f && puddle.updateTime <= 0f){
+            paramPuddle = puddle;
+
+            Units.nearby(rect.setSize(Mathf.clamp(amount / (maxLiquid / 1.5f)) * 10f).setCenter(puddle.x, puddle.y), unitCons);
+
+            if(liquid.temperature > 0.7f && tile.build != null && Mathf.chance(0.5)){
+                Fires.create(tile);
+            }
+
+            puddle.updateTime = 40f;
+        }
+
+        if(!headless && liquid.particleEffect != Fx.none){
+            if((puddle.effectTime += Time.delta) >= liquid.particleSpacing){
+                float size = Mathf.clamp(amount / (maxLiquid / 1.5f)) * 4f;
+                liquid.particleEffect.at(puddle.x + Mathf.range(size), puddle.y + Mathf.range(size));
+                puddle.effectTime = 0f;
+            }
+        }
+
+        puddle.updateTime -= Time.delta;
+
+        liquid.update(puddle);
+    }
+
     /** Deposits a Puddle between tile and source. */
     public static void deposit(Tile tile, Tile source, Liquid liquid, float amount){
         deposit(tile, source, liquid, amount, true);
@@ -104,7 +210,15 @@ public class Puddles{
     }
 
     public static void register(Puddle puddle){
-        world.tiles.setPuddle(puddle.tile().array(), puddle);
+        int pos = puddle.tile().array();
+        Puddle last = world.tiles.getPuddle(pos);
+
+        //only one puddle is updated per tile, so the one it replaces is dropped
+        if(last != null && last != puddle){
+            last.detach();
+        }
+
+        world.tiles.setPuddle(pos, puddle);
     }
 
     /** Reacts two liquids together at a location. */
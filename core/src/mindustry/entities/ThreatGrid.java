@@ -0,0 +1,113 @@
+package mindustry.entities;
+
+import arc.math.*;
+import arc.struct.*;
+import mindustry.gen.*;
+
+import java.util.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Coarse grid of the units of a team, used by target searches of enemy turrets.
+ * Units are sorted by cell, and their position, hitbox radius and target priority are copied into flat arrays,
+ * so that range queries scan a few contiguous cells instead of walking a quadtree.
+ * The grid is rebuilt at most once per update, the first time it is queried.
+ */
+public class ThreatGrid{
+    /** Side length of a cell in world units. */
+    public static final float cellSize = tilesize * 8f;
+    /** How far units may move after the grid is built and still be found by queries. */
+    public static final float moveMargin = tilesize * 2f;
+
+    /** Size of the grid in cells. */
+    public int width, height;
+    /** Amount of units in the grid. */
+    public int size;
+    /** The units of cell {@code i} are stored in {@code [cellStart[i], cellStart[i + 1])}. */
+    public int[] cellStart = {};
+    public Unit[] units = {};
+    /** Position, hitbox radius and target priority of each unit at the time the grid was built. */
+    public float[] x = {}, y = {}, radius = {}, priority = {};
+    /** Largest hitbox radius of any unit in the grid. */
+    public float maxRadius;
+
+    private int[] cells = {}, cursor = {};
+    private boolean valid;
+
+    /** Marks the grid as outdated. The next {@link #update(Seq)} rebuilds it. */
+    public void invalidate(){
+        valid = false;
+    }
+
+    /** Rebuilds the grid if it was invalidated since the last build. */
+    public void update(Seq<Unit> source){
+        if(!valid){
+            valid = true;
+            build(source);
+        }
+    }
+
+    public void build(Seq<Unit> source){
+        width = Math.max(Mathf.ceil(world.unitWidth() / cellSize), 1);
+        height = Math.max(Mathf.ceil(world.unitHeight() / cellSize), 1);
+        int cellCount = width * height, lastSize = size;
+
+        if(cellStart.length < cellCount + 1){
+            cellStart = new int[cellCount + 1];
+            cursor = new int[cellCount];
+        }else{
+            Arrays.fill(cellStart, 0, cellCount + 1, 0);
+        }
+
+        size = source.size;
+        if(units.length < size){
+            int capacity = Math.max(size, units.length * 7 / 4);
+            units = new Unit[capacity];
+            x = new float[capacity];
+            y = new float[capacity];
+            radius = new float[capacity];
+            priority = new float[capacity];
+            cells = new int[capacity];
+        }
+
+        //count units per cell, then sort them into place
+        Unit[] items = source.items;
+        for(int i = 0; i < size; i++){
+            int cell = cellX(items[i].x) + cellY(items[i].y) * width;
+            cells[i] = cell;
+            cellStart[cell + 1]++;
+        }
+        for(int i = 0; i < cellCount; i++){
+            cellStart[i + 1] += cellStart[i];
+            cursor[i] = cellStart[i];
+        }
+
+        maxRadius = 0f;
+        for(int i = 0; i < size; i++){
+            Unit unit = items[i];
+            int index = cursor[cells[i]]++;
+            units[index] = unit;
+            x[index] = unit.x;
+            y[index] = unit.y;
+            radius[index] = unit.hitSize / 2f;
+            priority[index] = unit.type.targetPriority;
+            maxRadius = Math.max(maxRadius, radius[index]);
+        }
+
+        //don't keep units of earlier updates alive
+        if(lastSize > size){
+            Arrays.fill(units, size, Math.min(lastSize, units.length), null);
+        }
+    }
+
+    /** @return the column of a world position, clamped to the grid. Units outside the world are stored in the edge cells. */
+    public int cellX(float worldX){
+        return Mathf.clamp((int)(worldX / cellSize), 0, width - 1);
+    }
+
+    /** @return the row of a world position, clamped to the grid. */
+    public int cellY(float worldY){
+        return Mathf.clamp((int)(worldY / cellSize), 0, height - 1);
+    }
+}
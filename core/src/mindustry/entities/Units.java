@@ -299,16 +299,40 @@ public class Units{
         cdist = 0f;
         cpriority = -99999f;
 
-        nearbyEnemies(team, x - range, y - range, range*2f, range*2f, e -> {
-            if(e.dead() || !predicate.get(e) || e.team == Team.derelict || !e.within(x, y, range + e.hitSize/2f) || !e.targetable(team) || e.inFogTo(team)) return;
-
-            float cost = sort.cost(e, x, y);
-            if((result == null || cost < cdist || e.type.targetPriority > cpriority) && e.type.targetPriority >= cpriority){
-                result = e;
-                cdist = cost;
-                cpriority = e.type.targetPriority;
+        Seq<TeamData> data = state.teams.present;
+        for(int i = 0; i < data.size; i++){
+            TeamData other = data.items[i];
+            if(other.team == team || other.team == Team.derelict || other.units.isEmpty()) continue;
+
+            ThreatGrid grid = other.threatGrid();
+            float reach = range + grid.maxRadius + ThreatGrid.moveMargin;
+            int minX = grid.cellX(x - reach), maxX = grid.cellX(x + reach), minY = grid.cellY(y - reach), maxY = grid.cellY(y + reach);
+            int[] cellStart = grid.cellStart;
+            float[] ux = grid.x, uy = grid.y, radius = grid.radius, priority = grid.priority;
+
+            for(int cy = minY; cy <= maxY; cy++){
+                for(int cx = minX; cx <= maxX; cx++){
+                    int cell = cx + cy * grid.width;
+                    for(int j = cellStart[cell], end = cellStart[cell + 1]; j < end; j++){
+                        //units that could not replace the current result are skipped before any other check
+                        if(priority[j] < cpriority) continue;
+
+                        float dx = ux[j] - x, dy = uy[j] - y, max = range + radius[j] + ThreatGrid.moveMargin;
+                        if(dx*dx + dy*dy > max*max) continue;
+
+                        Unit e = grid.units[j];
+                        if(e.dead() || !predicate.get(e) || e.team == Team.derelict || !e.within(x, y, range + e.hitSize/2f) || !e.targetable(team) || e.inFogTo(team)) continue;
+
+                        float cost = sort.cost(e, x, y);
+                        if((result == null || cost < cdist || e.type.targetPriority > cpriority) && e.type.targetPriority >= cpriority){
+                            result = e;
+                            cdist = cost;
+                            cpriority = e.type.targetPriority;
+                        }
+                    }
+                }
             }
-        });
+        }
 
         return result;
     }
@@ -2,12 +2,14 @@ package mindustry.entities.bullet;
 
 import arc.*;
 import arc.audio.*;
+import arc.func.*;
 import arc.graphics.*;
 import arc.graphics.g2d.*;
 import arc.math.*;
 import arc.math.geom.*;
 import arc.struct.*;
 import arc.util.*;
+import arc.util.pooling.*;
 import mindustry.*;
 import mindustry.ai.types.*;
 import mindustry.annotations.Annotations.*;
@@ -27,6 +29,29 @@ import static mindustry.Vars.*;
 
 public class BulletType extends Content implements Cloneable{
     static final UnitDamageEvent bulletDamageEvent = new UnitDamageEvent();
+    static final UnitBulletDestroyEvent bulletDestroyEvent = new UnitBulletDestroyEvent();
+
+    /** Fragments delayed to the next frame. They copy what they need from their bullet, which may be freed and reused before they spawn. */
+    private static final Seq<DelayedFrags> delayedFrags = new Seq<>(), spawnedFrags = new Seq<>();
+    private static final Pool<DelayedFrags> delayedFragPool = Pools.get(DelayedFrags.class, DelayedFrags::new);
+    private static boolean fragsPosted;
+
+    //parameters of the shared filters below, which would otherwise be allocated for every call
+    private static BulletType paramType;
+    private static Bullet paramBullet;
+    private static final Boolf<Unit>
+        healUnitFilter = e -> e.checkTarget(paramType.collidesAir, paramType.collidesGround) && e.team != paramBullet.team && !paramBullet.hasCollided(e.id),
+        enemyUnitFilter = e -> e != null && e.checkTarget(paramType.collidesAir, paramType.collidesGround) && !paramBullet.hasCollided(e.id);
+    private static final Boolf<Building>
+        healBuildFilter = t -> paramType.collidesGround && (t.team != paramBullet.team || t.damaged()) && !paramBullet.hasCollided(t.id),
+        enemyBuildFilter = t -> t != null && paramType.collidesGround && !paramBullet.hasCollided(t.id),
+        enemyTeamFilter = other -> other.team != paramBullet.team;
+    private static final Cons<Building>
+        splashHeal = other -> {
+            paramType.healEffect.at(other.x, other.y, 0f, paramType.healColor, other.block);
+            other.heal(paramType.healPercent / 100f * other.maxHealth() + paramType.healAmount);
+        },
+        splashFire = other -> Fires.create(other.tile);
 
     /** Lifetime in ticks. */
     public float lifetime = 40f;
@@ -417,7 +442,7 @@ public class BulletType extends Content implements Cloneable{
         }
 
         if(!wasDead && entity instanceof Unit unit && unit.dead){
-            Events.fire(new UnitBulletDestroyEvent(unit, b));
+            Events.fire(bulletDestroyEvent.set(unit, b));
         }
 
         handlePierce(b, health, entity.x(), entity.y());
@@ -453,7 +478,7 @@ public class BulletType extends Content implements Cloneable{
 
         if(fragOnHit){
             if(delayFrags && fragBullet != null && fragBullet.delayFrags){
-                Core.app.post(() -> createFrags(b, x, y));
+                delayFrags(b, x, y);
             }else{
                 createFrags(b, x, y);
             }
@@ -463,8 +488,8 @@ public class BulletType extends Content implements Cloneable{
         createUnits(b, x, y);
 
         if(suppressionRange > 0){
-            //bullets are pooled, require separate Vec2 instance
-            Damage.applySuppression(b.team, b.x, b.y, suppressionRange, suppressionDuration, 0f, suppressionEffectChance, new Vec2(b.x, b.y), suppressColor);
+            //bullets are pooled, require separate Vec2 instance; the source is only used by effects
+            Damage.applySuppression(b.team, b.x, b.y, suppressionRange, suppressionDuration, 0f, suppressionEffectChance, headless ? null : new Vec2(b.x, b.y), suppressColor);
         }
 
         createSplashDamage(b, x, y);
@@ -498,29 +523,66 @@ public class BulletType extends Content implements Cloneable{
             }
 
             if(heals()){
-                indexer.eachBlock(b.team, x, y, splashDamageRadius, Building::damaged, other -> {
-                    healEffect.at(other.x, other.y, 0f, healColor, other.block);
-                    other.heal(healPercent / 100f * other.maxHealth() + healAmount);
-                });
+                paramType = this;
+                indexer.eachBlock(b.team, x, y, splashDamageRadius, Building::damaged, splashHeal);
             }
 
             if(makeFire){
-                indexer.eachBlock(null, x, y, splashDamageRadius, other -> other.team != b.team, other -> Fires.create(other.tile));
+                paramBullet = b;
+                indexer.eachBlock(null, x, y, splashDamageRadius, enemyTeamFilter, splashFire);
             }
         }
     }
 
     public void createFrags(Bullet b, float x, float y){
-        if(fragBullet != null && (fragOnAbsorb || !b.absorbed) && !(b.frags >= pierceFragCap && pierceFragCap > 0)){
-            for(int i = 0; i < fragBullets; i++){
-                float len = Mathf.random(fragOffsetMin, fragOffsetMax);
-                float a = b.rotation() + Mathf.range(fragRandomSpread / 2) + fragAngle + ((i - fragBullets/2) * fragSpread);
-                fragBullet.create(b, x + Angles.trnsx(a, len), y + Angles.trnsy(a, len), a, Mathf.random(fragVelocityMin, fragVelocityMax), Mathf.random(fragLifeMin, fragLifeMax));
-            }
+        if(canCreateFrags(b)){
+            createFrags(b.owner, b.team, b.rotation(), x, y);
             b.frags++;
         }
     }
 
+    /** Spawns the fragments of this bullet type around a position, without a parent bullet. */
+    public void createFrags(@Nullable Entityc owner, Team team, float rotation, float x, float y){
+        for(int i = 0; i < fragBullets; i++){
+            float len = Mathf.random(fragOffsetMin, fragOffsetMax);
+            float a = rotation + Mathf.range(fragRandomSpread / 2) + fragAngle + ((i - fragBullets/2) * fragSpread);
+            fragBullet.create(owner, team, x + Angles.trnsx(a, len), y + Angles.trnsy(a, len), a, Mathf.random(fragVelocityMin, fragVelocityMax), Mathf.random(fragLifeMin, fragLifeMax));
+        }
+    }
+
+    public boolean canCreateFrags(Bullet b){
+        return fragBullet != null && (fragOnAbsorb || !b.absorbed) && !(b.frags >= pierceFragCap && pierceFragCap > 0);
+    }
+
+    /** Queues the fragments of a bullet to spawn on the next frame. */
+    public void delayFrags(Bullet b, float x, float y){
+        if(!canCreateFrags(b)) return;
+
+        delayedFrags.add(delayedFragPool.obtain().set(this, b.owner, b.team, b.rotation(), x, y));
+        b.frags++;
+
+        if(!fragsPosted){
+            fragsPosted = true;
+            Core.app.post(BulletType::createDelayedFrags);
+        }
+    }
+
+    /** Spawns all fragments that were delayed with {@link #delayFrags(Bullet, float, float)}. */
+    public static void createDelayedFrags(){
+        fragsPosted = false;
+
+        //fragments delayed by these fragments are queued for the next frame
+        spawnedFrags.addAll(delayedFrags);
+        delayedFrags.clear();
+
+        for(var frags : spawnedFrags){
+            frags.type.createFrags(frags.owner, frags.team, frags.rotation, frags.x, frags.y);
+        }
+
+        delayedFragPool.freeAll(spawnedFrags);
+        spawnedFrags.clear();
+    }
+
     public void createUnits(Bullet b, float x, float y){
         if(despawnUnit != null && Mathf.chance(despawnUnitChance)){
             for(int i = 0; i < despawnUnitCount; i++){
@@ -552,7 +614,9 @@ public class BulletType extends Content implements Cloneable{
     /** Called when the bullet is removed for any reason. */
     public void removed(Bullet b){
         if(trailLength > 0 && b.trail != null && b.trail.size() > 0){
-            Fx.trailFade.at(b.x, b.y, trailWidth, trailColor, b.trail.copy());
+            //the trail is reset along with the bullet when it is freed, so the effect can keep it instead of a copy
+            Fx.trailFade.at(b.x, b.y, trailWidth, trailColor, b.trail);
+            b.trail = null;
         }
     }
 
@@ -597,10 +661,8 @@ public class BulletType extends Content implements Cloneable{
             b.time = lifetime + 1f;
         }
 
-        if(spawnBullets.size > 0){
-            for(var bullet : spawnBullets){
-                bullet.create(b, b.x, b.y, b.rotation());
-            }
+        for(int i = 0; i < spawnBullets.size; i++){
+            spawnBullets.get(i).create(b, b.x, b.y, b.rotation());
         }
     }
 
@@ -627,19 +689,16 @@ public class BulletType extends Content implements Cloneable{
             float realAimY = b.aimY < 0 ? b.y : b.aimY;
 
             Teamc target;
+            paramType = this;
+            paramBullet = b;
             //home in on allies if possible
             if(heals()){
-                target = Units.closestTarget(null, realAimX, realAimY, homingRange,
-                e -> e.checkTarget(collidesAir, collidesGround) && e.team != b.team && !b.hasCollided(e.id),
-                t -> collidesGround && (t.team != b.team || t.damaged()) && !b.hasCollided(t.id)
-                );
+                target = Units.closestTarget(null, realAimX, realAimY, homingRange, healUnitFilter, healBuildFilter);
             }else{
                 if(b.aimTile != null && b.aimTile.build != null && b.aimTile.build.team != b.team && collidesGround && !b.hasCollided(b.aimTile.build.id)){
                     target = b.aimTile.build;
                 }else{
-                    target = Units.closestTarget(b.team, realAimX, realAimY, homingRange,
-                        e -> e != null && e.checkTarget(collidesAir, collidesGround) && !b.hasCollided(e.id),
-                        t -> t != null && collidesGround && !b.hasCollided(t.id));
+                    target = Units.closestTarget(b.team, realAimX, realAimY, homingRange, enemyUnitFilter, enemyBuildFilter);
                 }
             }
 
@@ -841,4 +900,28 @@ public class BulletType extends Content implements Cloneable{
         if(type == null) return;
         type.create(null, team, x, y, angle, damage, velocityScl, lifetimeScl, null);
     }
+
+    static class DelayedFrags implements Pool.Poolable{
+        BulletType type;
+        @Nullable Entityc owner;
+        Team team;
+        float rotation, x, y;
+
+        DelayedFrags set(BulletType type, @Nullable Entityc owner, Team team, float rotation, float x, float y){
+            this.type = type;
+            this.owner = owner;
+            this.team = team;
+            this.rotation = rotation;
+            this.x = x;
+            this.y = y;
+            return this;
+        }
+
+        @Override
+        public void reset(){
+            type = null;
+            owner = null;
+            team = null;
+        }
+    }
 }
@@ -100,6 +100,7 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
 
     private transient boolean sleeping;
     private transient float sleepTime;
+    private transient @Nullable TimerWheel.Handle wakeTimer;
     private transient boolean initialized;
 
     /** Sets this tile entity data to this and adds it if necessary. */
@@ -594,10 +595,27 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
         return ((state.tick / 30f) % 1f) < efficiency ? BlockStatus.active : BlockStatus.noInput;
     }
 
-    /** Call when nothing is happening to the entity. This increments the internal sleep timer. */
+    /** Call when nothing is happening to the entity. This increments the internal sleep timer. Disabled buildings never go dormant. */
     public void sleep(){
         sleepTime += Time.delta;
-        if(!sleeping && sleepTime >= timeToSleep){
+        //only logic can turn a disabled building back on, which would not change anything the building is waiting for
+        if(!sleeping && enabled && sleepTime >= timeToSleep){
+            remove();
+            sleeping = true;
+            sleepingEntities++;
+        }
+    }
+
+    /**
+     * Puts this entity to sleep right away and wakes it up after the given amount of ticks, unless something else wakes it up first.
+     * For buildings that have nothing to do but wait until their next piece of work.
+     */
+    public void sleepFor(float ticks){
+        if(wakeTimer == null) wakeTimer = new TimerWheel.Handle(this::noSleep);
+        world.timers.schedule(wakeTimer, ticks);
+
+        sleepTime = timeToSleep;
+        if(!sleeping){
             remove();
             sleeping = true;
             sleepingEntities++;
@@ -611,6 +629,34 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
             add();
             sleeping = false;
             sleepingEntities--;
+            if(wakeTimer != null) wakeTimer.cancel();
+        }
+    }
+
+    /**
+     * @return whether this building is dormant: removed from the update loop until something wakes it up.
+     * Receiving items or liquids, configuration, proximity changes, incoming power and logic writes all wake buildings up.
+     */
+    public boolean isSleeping(){
+        return sleeping;
+    }
+
+    /** @return the amount of dormant buildings in the world. */
+    public static int sleepingCount(){
+        return sleepingEntities;
+    }
+
+    /** Called when the world is cleared; dormant buildings of the last world are gone without being woken up. */
+    public static void resetSleeping(){
+        sleepingEntities = 0;
+    }
+
+    /** Clears the dormant state of a building that is about to be removed from the world. */
+    public void clearSleep(){
+        if(wakeTimer != null) wakeTimer.cancel();
+        if(sleeping){
+            sleeping = false;
+            sleepingEntities--;
         }
     }
 
@@ -799,6 +845,7 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
     }
 
     public void handleItem(Building source, Item item){
+        noSleep();
         items.add(item, 1);
     }
 
@@ -811,6 +858,7 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
     }
 
     public void handleLiquid(Building source, Liquid liquid, float amount){
+        noSleep();
         liquids.add(liquid, amount);
     }
 
@@ -1301,6 +1349,8 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
 
     /** Called when arbitrary configuration is applied to a tile. */
     public void configured(@Nullable Unit builder, @Nullable Object value){
+        noSleep();
+
         //null is of type void.class; anonymous classes use their superclass.
         Class<?> type = value == null ? void.class : value.getClass().isAnonymousClass() ? value.getClass().getSuperclass() : value.getClass();
 
@@ -1964,6 +2014,9 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
     public void control(LAccess type, double p1, double p2, double p3, double p4){
         if(type == LAccess.enabled){
             enabled = !Mathf.zero((float)p1);
+            noSleep();
+            //batteries never update, so they report the change right away
+            updatePowerState();
         }
     }
 
@@ -1995,6 +2048,7 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
             case totalPower -> {
                 if(power != null && block.consPower != null && block.consPower.buffered){
                     power.status = Mathf.clamp((float)(value / block.consPower.capacity));
+                    power.graph.markDirty();
                 }
             }
         }
@@ -2013,6 +2067,8 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
 
     @Override
     public void setProp(UnlockableContent content, double value){
+        noSleep();
+
         if(content instanceof Item item && items != null){
             int amount = (int)value;
             if(items.get(item) != amount){
@@ -2110,6 +2166,15 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
         if(enabled || !block.noUpdateDisabled){
             updateTile();
         }
+
+        updatePowerState();
+    }
+
+    /** Reports changes of the power production or request of this building to its power graph. Called after every update. */
+    public void updatePowerState(){
+        if(power != null && PowerGraph.refresh(self())){
+            power.graph.markDirty();
+        }
     }
 
     @Override
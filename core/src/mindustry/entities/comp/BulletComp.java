@@ -28,6 +28,7 @@ abstract class BulletComp implements Timedc, Damagec, Hitboxc, Teamc, Posc, Draw
     @Import float x, y, damage, lastX, lastY, time, lifetime;
     @Import Vec2 vel;
 
+    /** IDs of the entities this bullet has pierced. Allocated once per pooled bullet and cleared on removal, as pooling does not reset it. */
     IntSeq collided = new IntSeq(6);
     BulletType type;
 
@@ -71,7 +72,11 @@ abstract class BulletComp implements Timedc, Damagec, Hitboxc, Teamc, Posc, Draw
 
     @Override
     public void remove(){
-        if(Groups.isClearing) return;
+        if(Groups.isClearing){
+            //the bullet is still freed to the pool
+            collided.clear();
+            return;
+        }
 
         //'despawned' only counts when the bullet is killed externally or reaches the end of life
         if(!hit){
@@ -3,101 +3,42 @@ package mindustry.entities.comp;
 import arc.*;
 import arc.graphics.g2d.*;
 import arc.math.*;
-import arc.math.geom.*;
-import arc.util.*;
-import mindustry.*;
 import mindustry.annotations.Annotations.*;
 import mindustry.content.*;
 import mindustry.entities.*;
-import mindustry.game.*;
 import mindustry.gen.*;
 import mindustry.graphics.*;
 import mindustry.world.*;
-import mindustry.world.meta.*;
-
-import static mindustry.Vars.*;
 
 @EntityDef(value = {Firec.class}, pooled = true)
 @Component(base = true)
 abstract class FireComp implements Timedc, Posc, Syncc, Drawc{
     public static final int frames = 40, duration = 90;
 
-    private static final float spreadDelay = 22f, fireballDelay = 40f,
-        ticksPerFrame = (float)duration / frames, warmupDuration = 20f, damageDelay = 40f, tileDamage = 1.8f, unitDamage = 3f;
+    private static final float warmupDuration = 20f;
 
     public static final TextureRegion[] regions = new TextureRegion[frames];
 
-    @Import float time, lifetime, x, y;
+    @Import float x, y;
+    @Import boolean added;
 
     Tile tile;
-    private transient float
-        puddleFlammability, damageTimer = Mathf.random(40f),
-        spreadTimer = Mathf.random(spreadDelay), fireballTimer = Mathf.random(fireballDelay),
+    //updated by Fires.update() in a single pass over the tiles that hold fires
+    transient float
+        tileFlammability = -1f, puddleFlammability, damageTimer = Mathf.random(40f),
+        spreadTimer = Mathf.random(Fires.spreadDelay), fireballTimer = Mathf.random(Fires.fireballDelay),
         warmup = 0f,
         animation = Mathf.random(frames - 1);
 
-    @Override
-    public void update(){
-
-        animation += Time.delta / ticksPerFrame;
-        warmup += Time.delta;
-        animation %= frames;
-
-        if(!headless){
-            control.sound.loop(Sounds.fire, this, 0.07f);
-        }
-
-        //faster updates -> disappears more quickly
-        float speedMultiplier = 1f + Math.max(state.envAttrs.get(Attribute.water) * 10f, 0);
-        time = Mathf.clamp(time + Time.delta * speedMultiplier, 0, lifetime);
-
-        if(Vars.net.client()){
-            return;
-        }
-
-        if(time >= lifetime || tile == null || Float.isNaN(lifetime)){
-            remove();
-            return;
-        }
-
-        Building entity = tile.build;
-        boolean damage = entity != null;
-
-        float flammability = tile.getFlammability() + puddleFlammability;
+    /** Removes this fire from its groups without freeing it, after another fire has taken over its tile. */
+    public void detach(){
+        if(!added) return;
 
-        if(!damage && flammability <= 0){
-            time += Time.delta * 8;
-        }
-
-        if(damage){
-            lifetime += Mathf.clamp(flammability / 8f, 0f, 0.6f) * Time.delta;
-        }
-
-        if(flammability > 1f && (spreadTimer += Time.delta * Mathf.clamp(flammability / 5f, 0.3f, 2f)) >= spreadDelay){
-            spreadTimer = 0f;
-            Point2 p = Geometry.d4[Mathf.random(3)];
-            Tile other = world.tile(tile.x + p.x, tile.y + p.y);
-            Fires.create(other);
-        }
-
-        if(flammability > 0 && (fireballTimer += Time.delta * Mathf.clamp(flammability / 10f, 0f, 0.5f)) >= fireballDelay){
-            fireballTimer = 0f;
-            Bullets.fireball.createNet(Team.derelict, x, y, Mathf.random(360f), -1f, 1, 1);
-        }
-
-        //apply damage to nearby units & building
-        if((damageTimer += Time.delta) >= damageDelay){
-            damageTimer = 0f;
-            Puddlec p = Puddles.get(tile);
-            puddleFlammability = p != null ? p.getFlammability() / 3f : 0;
-
-            if(damage){
-                entity.damage(tileDamage);
-            }
-            Damage.damageUnits(null, tile.worldx(), tile.worldy(), tilesize, unitDamage,
-            unit -> !unit.isFlying() && !unit.isImmune(StatusEffects.burning),
-            unit -> unit.apply(StatusEffects.burning, 60 * 5));
-        }
+        //force removal without pool free
+        Groups.all.remove(self());
+        Groups.draw.remove(self());
+        Groups.fire.remove(self());
+        added = false;
     }
 
     @Override
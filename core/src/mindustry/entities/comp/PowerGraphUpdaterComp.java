@@ -11,6 +11,9 @@ abstract class PowerGraphUpdaterComp implements Entityc{
 
     @Override
     public void update(){
+        //graphs are updated in a separate phase
+        if(PowerGraph.parallel) return;
+
         graph.update();
     }
 }
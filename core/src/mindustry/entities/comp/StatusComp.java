@@ -24,6 +24,10 @@ abstract class StatusComp implements Posc, Flyingc{
     transient float speedMultiplier = 1, damageMultiplier = 1, healthMultiplier = 1, reloadMultiplier = 1, buildSpeedMultiplier = 1, dragMultiplier = 1, armorOverride = -1f;
     transient boolean disarmed = false;
 
+    //products of the multipliers of all applied effects; only recalculated when the set of effects changes
+    private transient float effectSpeed = 1, effectDamage = 1, effectHealth = 1, effectReload = 1, effectBuildSpeed = 1, effectDrag = 1, effectArmor = -1f;
+    private transient boolean effectDisarm, effectDynamic, statusesChanged = true;
+
     @Import UnitType type;
     @Import float maxHealth;
 
@@ -51,6 +55,8 @@ abstract class StatusComp implements Posc, Flyingc{
                     effect.applied(self(), entry.time, true);
                     return;
                 }else if(entry.effect.applyTransition(self(), effect, entry, duration)){ //find reaction
+                    //reactions may replace the effect of the entry
+                    statusesChanged = true;
                     //TODO effect may react with multiple other effects
                     //stop looking when one is found
                     return;
@@ -63,6 +69,7 @@ abstract class StatusComp implements Posc, Flyingc{
             StatusEntry entry = Pools.obtain(StatusEntry.class, StatusEntry::new);
             entry.set(effect, duration);
             statuses.add(entry);
+            statusesChanged = true;
             effect.applied(self(), duration, false);
         }
     }
@@ -74,6 +81,7 @@ abstract class StatusComp implements Posc, Flyingc{
 
     void clearStatuses(){
         statuses.clear();
+        statusesChanged = true;
     }
 
     /** Removes a status effect. */
@@ -85,6 +93,7 @@ abstract class StatusComp implements Posc, Flyingc{
             }
             return false;
         });
+        statusesChanged = true;
     }
 
     boolean isBoss(){
@@ -123,6 +132,7 @@ abstract class StatusComp implements Posc, Flyingc{
         StatusEntry entry = Pools.obtain(StatusEntry.class, StatusEntry::new);
         entry.set(StatusEffects.dynamic, Float.POSITIVE_INFINITY);
         statuses.add(entry);
+        statusesChanged = true;
         entry.effect.applied(self(), entry.time, false);
         return entry;
     }
@@ -174,53 +184,89 @@ abstract class StatusComp implements Posc, Flyingc{
             apply(floor.status, floor.statusDuration);
         }
 
-        applied.clear();
-        armorOverride = -1f;
-        speedMultiplier = damageMultiplier = healthMultiplier = reloadMultiplier = buildSpeedMultiplier = dragMultiplier = 1f;
-        disarmed = false;
-
-        if(statuses.isEmpty()) return;
+        if(statuses.size > 0){
+            //tick all durations first, then drop expired effects
+            float delta = Time.delta;
+            for(int i = 0; i < statuses.size; i++){
+                StatusEntry entry = statuses.get(i);
+                entry.time = Math.max(entry.time - delta, 0);
+            }
 
-        int index = 0;
+            for(int i = statuses.size - 1; i >= 0; i--){
+                StatusEntry entry = statuses.get(i);
+                if(entry.effect == null || (entry.time <= 0 && !entry.effect.permanent)){
+                    Pools.free(entry);
+                    statuses.remove(i);
+                    statusesChanged = true;
+                }
+            }
+        }
 
-        while(index < statuses.size){
-            StatusEntry entry = statuses.get(index++);
+        //dynamic effects can have their multipliers changed at any time through the entry
+        if(statusesChanged || effectDynamic){
+            statusesChanged = false;
+            updateStatusMultipliers();
+        }
 
-            entry.time = Math.max(entry.time - Time.delta, 0);
+        //the multipliers are reset every update, as abilities may modify them
+        speedMultiplier = effectSpeed;
+        damageMultiplier = effectDamage;
+        healthMultiplier = effectHealth;
+        reloadMultiplier = effectReload;
+        buildSpeedMultiplier = effectBuildSpeed;
+        dragMultiplier = effectDrag;
+        armorOverride = effectArmor;
+        disarmed = effectDisarm;
+
+        for(int i = 0; i < statuses.size; i++){
+            StatusEntry entry = statuses.get(i);
+            entry.effect.update(self(), entry.time);
+        }
+    }
 
-            if(entry.effect == null || (entry.time <= 0 && !entry.effect.permanent)){
-                Pools.free(entry);
-                index --;
-                statuses.remove(index);
+    private void updateStatusMultipliers(){
+        applied.clear();
+        effectArmor = -1f;
+        effectSpeed = effectDamage = effectHealth = effectReload = effectBuildSpeed = effectDrag = 1f;
+        effectDisarm = effectDynamic = false;
+
+        for(int i = 0; i < statuses.size; i++){
+            StatusEntry entry = statuses.get(i);
+            applied.set(entry.effect.id);
+
+            //TODO this is very ugly...
+            if(entry.effect.dynamic){
+                effectDynamic = true;
+                effectSpeed *= entry.speedMultiplier;
+                effectHealth *= entry.healthMultiplier;
+                effectDamage *= entry.damageMultiplier;
+                effectReload *= entry.reloadMultiplier;
+                effectBuildSpeed *= entry.buildSpeedMultiplier;
+                effectDrag *= entry.dragMultiplier;
+                //armor is a special case; many units have it set it to 0, so an override at values >= 0 is used
+                if(entry.armorOverride >= 0f) effectArmor = entry.armorOverride;
             }else{
-                applied.set(entry.effect.id);
-
-                //TODO this is very ugly...
-                if(entry.effect.dynamic){
-                    speedMultiplier *= entry.speedMultiplier;
-                    healthMultiplier *= entry.healthMultiplier;
-                    damageMultiplier *= entry.damageMultiplier;
-                    reloadMultiplier *= entry.reloadMultiplier;
-                    buildSpeedMultiplier *= entry.buildSpeedMultiplier;
-                    dragMultiplier *= entry.dragMultiplier;
-                    //armor is a special case; many units have it set it to 0, so an override at values >= 0 is used
-                    if(entry.armorOverride >= 0f) armorOverride = entry.armorOverride;
-                }else{
-                    speedMultiplier *= entry.effect.speedMultiplier;
-                    healthMultiplier *= entry.effect.healthMultiplier;
-                    damageMultiplier *= entry.effect.damageMultiplier;
-                    reloadMultiplier *= entry.effect.reloadMultiplier;
-                    buildSpeedMultiplier *= entry.effect.buildSpeedMultiplier;
-                    dragMultiplier *= entry.effect.dragMultiplier;
-                }
-
-                disarmed |= entry.effect.disarm;
-
-                entry.effect.update(self(), entry.time);
+                effectSpeed *= entry.effect.speedMultiplier;
+                effectHealth *= entry.effect.healthMultiplier;
+                effectDamage *= entry.effect.damageMultiplier;
+                effectReload *= entry.effect.reloadMultiplier;
+                effectBuildSpeed *= entry.effect.buildSpeedMultiplier;
+                effectDrag *= entry.effect.dragMultiplier;
             }
+
+            effectDisarm |= entry.effect.disarm;
         }
     }
 
+    @Override
+    public void afterRead(){
+        statusesChanged = true;
+    }
+
+    public void afterSync(){
+        statusesChanged = true;
+    }
+
     public Bits statusBits(){
         return applied;
     }
@@ -557,6 +557,12 @@ public class EventType{
 
         public UnitBulletDestroyEvent(){
         }
+
+        public UnitBulletDestroyEvent set(Unit unit, Bullet bullet){
+            this.unit = unit;
+            this.bullet = bullet;
+            return this;
+        }
     }
 
     /**
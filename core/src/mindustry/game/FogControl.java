@@ -1,6 +1,7 @@
 package mindustry.game;
 
 import arc.*;
+import arc.func.*;
 import arc.math.*;
 import arc.struct.Bits;
 import arc.struct.*;
@@ -15,6 +16,8 @@ import mindustry.io.*;
 import mindustry.world.meta.*;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import static mindustry.Vars.*;
 
@@ -22,14 +25,19 @@ public final class FogControl implements CustomChunk{
     private static volatile int ww, wh;
     private static final int dynamicUpdateInterval = 1000 / 25; //25 FPS
     private static final Object notifyStatic = new Object(), notifyDynamic = new Object();
+    /** held while drawing; events are drawn outside of the event locks, so the main thread never waits on rasterization */
+    private static final Object staticDraw = new Object(), dynamicDraw = new Object();
 
     /** indexed by team */
     private volatile @Nullable FogData[] fog;
 
     private final LongSeq staticEvents = new LongSeq();
-    private final LongSeq dynamicEventQueue = new LongSeq(), unitEventQueue = new LongSeq();
+    private final LongSeq dynamicEventQueue = new LongSeq(), staticEventQueue = new LongSeq();
     /** access must be synchronized; accessed from both threads */
     private final LongSeq dynamicEvents = new LongSeq(100);
+    /** events taken off the shared queues for drawing; only accessed while holding the draw locks */
+    private final LongSeq staticWork = new LongSeq(), dynamicWork = new LongSeq();
+    private final FogDrawer staticDrawer = new FogDrawer(), dynamicDrawer = new FogDrawer();
 
     private @Nullable Thread staticFogThread;
     private @Nullable Thread dynamicFogThread;
@@ -96,14 +104,25 @@ public final class FogControl implements CustomChunk{
         SaveVersion.addCustomChunk("static-fog-data", this);
     }
 
-    public @Nullable Bits getDiscovered(Team team){
+    /** @return the static fog layer of a team, or null if it has none. */
+    public @Nullable FogBits getDiscoveredData(Team team){
         return fog == null || fog[team.id] == null ? null : fog[team.id].staticData;
     }
 
+    /**
+     * @return a copy of the static fog layer of a team, or null if it has none.
+     * @deprecated copies the whole layer on every call; use {@link #getDiscoveredData(Team)} instead.
+     */
+    @Deprecated
+    public @Nullable Bits getDiscovered(Team team){
+        var data = getDiscoveredData(team);
+        return data == null ? null : data.toBits();
+    }
+
     public boolean isDiscovered(Team team, int x, int y){
         if(!state.rules.staticFog || !state.rules.fog || team == null || team.isAI()) return true;
 
-        var data = getDiscovered(team);
+        var data = getDiscoveredData(team);
         if(data == null) return false;
         if(x < 0 || y < 0 || x >= ww || y >= wh) return false;
         return data.get(x + y * ww);
@@ -119,7 +138,7 @@ public final class FogControl implements CustomChunk{
         var data = data(team);
         if(data == null) return false;
         if(x < 0 || y < 0 || x >= ww || y >= wh) return false;
-        return data.read.get(x + y * ww);
+        return data.visible.get(x + y * ww);
     }
 
     public void resetFog(){
@@ -146,6 +165,30 @@ public final class FogControl implements CustomChunk{
         }
     }
 
+    /**
+     * Copies the latest dynamic fog of every team into its per-tick visibility layer.
+     * Everything that queries visibility during the tick (snapshots, targeting, building) then reads a stable copy that the fog thread never writes to.
+     */
+    void publishVisibility(){
+        for(var data : fog){
+            if(data == null) continue;
+
+            //retry if the fog thread swapped buffers during the copy, as the copied buffer may have been cleared for redrawing
+            for(int attempt = 0; attempt < 3; attempt++){
+                int revision = data.revision;
+                if(revision == data.visibleRevision) break;
+
+                FogBits read = data.read;
+                System.arraycopy(read.words, 0, data.visible.words, 0, read.words.length);
+
+                if(revision == data.revision){
+                    data.visibleRevision = revision;
+                    break;
+                }
+            }
+        }
+    }
+
     /** @param initial whether this is the initial update; if true, does not update renderer */
     void pushStaticBlocks(boolean initial){
         if(fog == null) fog = new FogData[256];
@@ -217,30 +260,21 @@ public final class FogControl implements CustomChunk{
         for(var team : state.teams.present){
             //AI teams do not have fog
             if(!team.team.isOnlyAI()){
-                //separate for each team
-                unitEventQueue.clear();
-
                 FogData data = fog[team.team.id];
 
                 if(data == null){
                     data = fog[team.team.id] = new FogData();
                 }
 
-                synchronized(staticEvents){
-                    //TODO slow?
-                    for(var unit : team.units){
-                        int tx = unit.tileX(), ty = unit.tileY(), pos = tx + ty * ww;
-                        if(unit.type.fogRadius <= 0f) continue;
-                        long event = FogEvent.get(tx, ty, (int)unit.type.fogRadius, team.team.id);
+                //only units that moved to another tile generate events
+                for(var unit : team.units){
+                    if(unit.type.fogRadius <= 0f) continue;
+                    int tx = unit.tileX(), ty = unit.tileY(), pos = tx + ty * ww;
 
-                        //always update the dynamic events, but only *flush* the results when necessary?
-                        unitEventQueue.add(event);
-
-                        if(unit.lastFogPos != pos){
-                            pushEvent(event, false);
-                            unit.lastFogPos = pos;
-                            data.dynamicUpdated = true;
-                        }
+                    if(unit.lastFogPos != pos){
+                        staticEventQueue.add(FogEvent.get(tx, ty, (int)unit.type.fogRadius, team.team.id));
+                        unit.lastFogPos = pos;
+                        data.dynamicUpdated = true;
                     }
                 }
 
@@ -255,9 +289,22 @@ public final class FogControl implements CustomChunk{
                     }
 
                     //add unit updates
-                    dynamicEventQueue.addAll(unitEventQueue);
+                    for(var unit : team.units){
+                        if(unit.type.fogRadius <= 0f) continue;
+                        dynamicEventQueue.add(FogEvent.get(unit.tileX(), unit.tileY(), (int)unit.type.fogRadius, team.team.id));
+                    }
+                }
+            }
+        }
+
+        //the static event lock is only taken when a unit actually moved
+        if(staticEventQueue.size > 0){
+            synchronized(staticEvents){
+                for(int i = 0; i < staticEventQueue.size; i++){
+                    pushEvent(staticEventQueue.items[i], false);
                 }
             }
+            staticEventQueue.clear();
         }
 
         if(dynamicEventQueue.size > 0){
@@ -270,7 +317,7 @@ public final class FogControl implements CustomChunk{
 
             //force update so visibility doesn't have a pop-in
             if(justLoaded){
-                updateDynamic(new Bits(256));
+                updateDynamic();
                 justLoaded = false;
             }
 
@@ -287,6 +334,8 @@ public final class FogControl implements CustomChunk{
                 notifyStatic.notify();
             }
         }
+
+        publishVisibility();
     }
 
     class StaticFogThread extends Thread{
@@ -317,24 +366,30 @@ public final class FogControl implements CustomChunk{
     }
 
     void updateStatic(){
+        synchronized(staticDraw){
+            //take the events and release the lock right away, so the main thread can keep pushing new ones
+            synchronized(staticEvents){
+                staticWork.clear();
+                staticWork.addAll(staticEvents);
+                staticEvents.clear();
+            }
 
-        //I really don't like synchronizing here, but there should be *some* performance benefit at least
-        synchronized(staticEvents){
-            int size = staticEvents.size;
-            for(int i = 0; i < size; i++){
-                long event = staticEvents.items[i];
-                int x = FogEvent.x(event), y = FogEvent.y(event), rad = FogEvent.radius(event), team = FogEvent.team(event);
+            var fog = this.fog;
+            if(fog == null) return;
+
+            staticDrawer.draw(staticWork, (team, events) -> {
                 var data = fog[team];
-                if(data != null){
-                    circle(data.staticData, x, y, rad);
+                if(data == null) return;
+
+                for(int i = 0; i < events.size; i++){
+                    long event = events.items[i];
+                    circle(data.staticData, FogEvent.x(event), FogEvent.y(event), FogEvent.radius(event));
                 }
-            }
-            staticEvents.clear();
+            });
         }
     }
 
     class DynamicFogThread extends Thread{
-        final Bits cleared = new Bits();
 
         DynamicFogThread(){
             super("DynamicFogThread");
@@ -355,7 +410,7 @@ public final class FogControl implements CustomChunk{
                         }
                     }
 
-                    updateDynamic(cleared);
+                    updateDynamic();
 
                     //ignore, don't want to crash this thread
                 }catch(Exception e){
@@ -366,47 +421,45 @@ public final class FogControl implements CustomChunk{
         }
     }
 
-    void updateDynamic(Bits cleared){
-        cleared.clear();
-
-        //ugly sync
-        synchronized(dynamicEvents){
-            int size = dynamicEvents.size;
-
-            //draw step
-            for(int i = 0; i < size; i++){
-                long event = dynamicEvents.items[i];
-                int x = FogEvent.x(event), y = FogEvent.y(event), rad = FogEvent.radius(event), team = FogEvent.team(event);
+    void updateDynamic(){
+        synchronized(dynamicDraw){
+            synchronized(dynamicEvents){
+                dynamicWork.clear();
+                dynamicWork.addAll(dynamicEvents);
+                dynamicEvents.clear();
+            }
 
-                if(rad <= 0) continue;
+            var fog = this.fog;
+            if(fog == null) return;
 
+            dynamicDrawer.draw(dynamicWork, (team, events) -> {
                 var data = fog[team];
-                if(data != null){
+                if(data == null) return;
 
-                    //clear the buffer, since it is being re-drawn
-                    if(!cleared.get(team)){
-                        cleared.set(team);
+                boolean drawn = false;
+                for(int i = 0; i < events.size; i++){
+                    long event = events.items[i];
+                    int rad = FogEvent.radius(event);
+                    if(rad <= 0) continue;
 
+                    //clear the buffer, since it is being re-drawn
+                    if(!drawn){
+                        drawn = true;
                         data.write.clear();
                     }
 
                     //radius is always +1 to keep up with visuals
-                    circle(data.write, x, y, rad + 1);
+                    circle(data.write, FogEvent.x(event), FogEvent.y(event), rad + 1);
                 }
-            }
-            dynamicEvents.clear();
-        }
-
-        //swap step, no need for synchronization or anything
-        for(int i = 0; i < 256; i++){
-            if(cleared.get(i)){
-                var data = fog[i];
 
-                //swap buffers, flushing the data that was just drawn
-                Bits temp = data.read;
-                data.read = data.write;
-                data.write = temp;
-            }
+                if(drawn){
+                    //swap buffers, flushing the data that was just drawn
+                    FogBits temp = data.read;
+                    data.read = data.write;
+                    data.write = temp;
+                    data.revision++;
+                }
+            });
         }
     }
 
@@ -424,7 +477,7 @@ public final class FogControl implements CustomChunk{
         for(int i = 0; i < 256; i++){
             if(fog[i] != null){
                 stream.writeByte(i);
-                Bits data = fog[i].staticData;
+                FogBits data = fog[i].staticData;
                 int size = ww * wh;
 
                 int pos = 0;
@@ -462,7 +515,7 @@ public final class FogControl implements CustomChunk{
             fog[team] = new FogData();
 
             int pos = 0;
-            Bits bools = fog[team].staticData;
+            FogBits bools = fog[team].staticData;
 
             while(pos < len){
                 int data = stream.readByte() & 0xff;
@@ -485,7 +538,7 @@ public final class FogControl implements CustomChunk{
         return state.rules.fog && state.rules.staticFog && fog != null;
     }
 
-    static void circle(Bits arr, int x, int y, int radius){
+    static void circle(FogBits arr, int x, int y, int radius){
         int f = 1 - radius;
         int ddFx = 1, ddFy = -2 * radius;
         int px = 0, py = radius;
@@ -510,7 +563,7 @@ public final class FogControl implements CustomChunk{
         }
     }
 
-    static void hline(Bits arr, int x1, int x2, int y){
+    static void hline(FogBits arr, int x1, int x2, int y){
         if(y < 0 || y >= wh) return;
         int tmp;
 
@@ -533,9 +586,15 @@ public final class FogControl implements CustomChunk{
 
     static class FogData{
         /** dynamic double-buffered data for dynamic (live) coverage */
-        volatile Bits read, write;
+        volatile FogBits read, write;
+        /** incremented by the fog thread every time the dynamic buffers are swapped */
+        volatile int revision;
+        /** copy of the dynamic coverage taken once per tick on the main thread; this is what visibility queries read */
+        final FogBits visible;
+        /** revision that {@link #visible} was copied from */
+        int visibleRevision;
         /** static map exploration fog*/
-        final Bits staticData;
+        final FogBits staticData;
 
         /** last dynamic update timestamp. */
         long lastDynamicMs = 0;
@@ -545,9 +604,105 @@ public final class FogControl implements CustomChunk{
         FogData(){
             int len = ww * wh;
 
-            read = new Bits(len);
-            write = new Bits(len);
-            staticData = new Bits(len);
+            read = new FogBits(len);
+            write = new FogBits(len);
+            visible = new FogBits(len);
+            staticData = new FogBits(len);
+        }
+    }
+
+    /** Groups fog events by team and draws every team on its own, in parallel when more than one team has events. */
+    static class FogDrawer{
+        final LongSeq[] byTeam = new LongSeq[256];
+        final IntSeq teams = new IntSeq();
+        final Seq<Future<?>> tasks = new Seq<>();
+
+        void draw(LongSeq events, Cons2<Integer, LongSeq> drawer){
+            teams.clear();
+            for(int i = 0; i < events.size; i++){
+                int team = FogEvent.team(events.items[i]);
+                if(byTeam[team] == null) byTeam[team] = new LongSeq();
+                if(byTeam[team].isEmpty()) teams.add(team);
+                byTeam[team].add(events.items[i]);
+            }
+
+            try{
+                if(teams.size == 1){
+                    drawer.get(teams.first(), byTeam[teams.first()]);
+                }else{
+                    tasks.clear();
+                    for(int i = 0; i < teams.size; i++){
+                        int team = teams.items[i];
+                        tasks.add(mainExecutor.submit(() -> drawer.get(team, byTeam[team])));
+                    }
+
+                    for(var task : tasks){
+                        task.get();
+                    }
+                }
+            }catch(InterruptedException e){
+                //the fog thread is being stopped
+                Thread.currentThread().interrupt();
+            }catch(ExecutionException e){
+                Log.err(e);
+            }finally{
+                for(int i = 0; i < teams.size; i++){
+                    byTeam[teams.items[i]].clear();
+                }
+            }
+        }
+    }
+
+    /** Fixed-size bit set; ranges are filled a 64-bit word at a time. */
+    public static class FogBits{
+        final long[] words;
+
+        public FogBits(int length){
+            words = new long[(length + 63) >>> 6];
+        }
+
+        public boolean get(int index){
+            int word = index >>> 6;
+            return word < words.length && (words[word] & (1L << index)) != 0;
+        }
+
+        public void set(int index){
+            words[index >>> 6] |= 1L << index;
+        }
+
+        /** Sets every bit from {@code from} (inclusive) to {@code to} (exclusive). */
+        public void set(int from, int to){
+            if(from >= to) return;
+
+            int first = from >>> 6, last = (to - 1) >>> 6;
+            long firstMask = -1L << from, lastMask = -1L >>> -to;
+
+            if(first == last){
+                words[first] |= firstMask & lastMask;
+            }else{
+                words[first] |= firstMask;
+                for(int i = first + 1; i < last; i++){
+                    words[i] = -1L;
+                }
+                words[last] |= lastMask;
+            }
+        }
+
+        public void clear(){
+            Arrays.fill(words, 0L);
+        }
+
+        /** @return a copy of these bits as {@link Bits}. Only visits set bits. */
+        public Bits toBits(){
+            Bits out = new Bits(words.length << 6);
+            for(int i = 0; i < words.length; i++){
+                long word = words[i];
+                while(word != 0){
+                    out.set((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return out;
         }
     }
 
@@ -48,14 +48,19 @@ public class Saves{
     public void load(){
         saves.clear();
 
-        //read saves in parallel
+        //read saves in parallel; unchanged saves are taken from the index without opening them
+        SaveIndex index = SaveIO.indexFor(saveDirectory);
         Seq<Future<SaveSlot>> futures = new Seq<>();
 
         for(Fi file : saveDirectory.list()){
-            if(!file.name().contains("backup") && SaveIO.isSaveValid(file)){
+            if(!file.name().contains("backup") && file.extension().equals(saveExtension)){
                 futures.add(mainExecutor.submit(() -> {
+                    var entry = index.get(file);
+                    //fall back to the backup file if the save itself is broken
+                    if(entry == null && !SaveIO.isSaveValid(file)) return null;
+
                     SaveSlot slot = new SaveSlot(file);
-                    slot.meta = SaveIO.getMeta(file);
+                    slot.meta = entry == null ? SaveIO.getMeta(file) : entry.meta();
                     return slot;
                 }));
             }
@@ -63,11 +68,13 @@ public class Saves{
 
         for(var future : futures){
             try{
-                saves.add(future.get());
+                var slot = future.get();
+                if(slot != null) saves.add(slot);
             }catch(Exception e){
                 Log.err(e);
             }
         }
+        index.flush();
 
         //clear saves from build <130 that had the new naval sectors.
         saves.removeAll(s -> {
@@ -8,6 +8,7 @@ import arc.struct.*;
 import arc.util.*;
 import mindustry.*;
 import mindustry.ai.*;
+import mindustry.entities.*;
 import mindustry.gen.*;
 import mindustry.type.*;
 import mindustry.world.*;
@@ -166,6 +167,9 @@ public class Teams{
             if(data.unitTree != null){
                 data.unitTree.clear();
             }
+            if(data.threatGrid != null){
+                data.threatGrid.invalidate();
+            }
 
             if(data.typeCounts != null){
                 Arrays.fill(data.typeCounts, 0);
@@ -263,6 +267,8 @@ public class Teams{
         public @Nullable QuadTree<Building> turretTree;
         /** Quadtree for units of this team. Do not access directly. */
         public @Nullable QuadTree<Unit> unitTree;
+        /** Grid of units of this team for target searches. Do not access directly. */
+        public @Nullable ThreatGrid threatGrid;
         /** Current unit cap. Do not modify externally. */
         public int unitCap;
         /** Total unit count. */
@@ -390,6 +396,13 @@ public class Teams{
             return unitTree;
         }
 
+        /** @return the units of this team sorted into a grid, built from {@link #units} the first time it is needed in each update. */
+        public ThreatGrid threatGrid(){
+            if(threatGrid == null) threatGrid = new ThreatGrid();
+            threatGrid.update(units);
+            return threatGrid;
+        }
+
         public int countType(UnitType type){
             return typeCounts == null || typeCounts.length <= type.id ? 0 : typeCounts[type.id];
         }
@@ -44,7 +44,7 @@ public final class FogRenderer{
 
     public void drawFog(){
         //there is no fog.
-        if(fogControl.getDiscovered(player.team()) == null) return;
+        if(fogControl.getDiscoveredData(player.team()) == null) return;
 
         //resize if world size changes
         boolean clearStatic = staticFog.resizeCheck(world.width(), world.height());
@@ -143,7 +143,7 @@ public final class FogRenderer{
         Draw.color();
         int ww = world.width(), wh = world.height();
 
-        var data = fogControl.getDiscovered(player.team());
+        var data = fogControl.getDiscoveredData(player.team());
         int len = world.width() * world.height();
         if(data != null){
             for(int i = 0; i < len; i++){
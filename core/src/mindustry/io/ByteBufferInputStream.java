@@ -0,0 +1,48 @@
+package mindustry.io;
+
+import java.io.*;
+import java.nio.*;
+
+/**
+ * Unsynchronized input stream over the remaining bytes of a buffer.
+ * Used for decoding saves that were read and inflated in bulk, where the per-byte reads of a {@link DataInputStream}
+ * would otherwise go through a synchronized or inflating stream.
+ */
+public class ByteBufferInputStream extends InputStream{
+    private final ByteBuffer buffer;
+
+    public ByteBufferInputStream(ByteBuffer buffer){
+        this.buffer = buffer;
+    }
+
+    public ByteBufferInputStream(byte[] bytes){
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    @Override
+    public int read(){
+        return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length){
+        if(length == 0) return 0;
+        if(!buffer.hasRemaining()) return -1;
+
+        length = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, length);
+        return length;
+    }
+
+    @Override
+    public long skip(long amount){
+        int skipped = (int)Math.max(Math.min(amount, buffer.remaining()), 0);
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available(){
+        return buffer.remaining();
+    }
+}
@@ -3,6 +3,7 @@ package mindustry.io;
 import arc.files.*;
 import arc.graphics.*;
 import arc.struct.*;
+import arc.util.*;
 import arc.util.io.*;
 import mindustry.content.*;
 import mindustry.core.*;
@@ -35,12 +36,25 @@ public class MapIO{
     }
 
     public static Map createMap(Fi file, boolean custom) throws IOException{
+        return createMap(file, custom, null);
+    }
+
+    /** Creates a map from its meta tags. If an index is specified, the tags are taken from it when the file has not changed. */
+    public static Map createMap(Fi file, boolean custom, @Nullable SaveIndex index) throws IOException{
+        if(index != null){
+            var entry = index.get(file);
+            if(entry == null) throw new IOException("Invalid map file: " + file);
+            //copied, as maps may modify their tags
+            StringMap tags = new StringMap();
+            tags.putAll(entry.tags);
+            return new Map(file, tags.getInt("width"), tags.getInt("height"), tags, custom, entry.version, Version.build);
+        }
+
         try(InputStream is = new InflaterInputStream(file.read(bufferSize)); CounterInputStream counter = new CounterInputStream(is); DataInputStream stream = new DataInputStream(counter)){
             SaveIO.readHeader(stream);
             int version = stream.readInt();
             SaveVersion ver = SaveIO.getSaveWriter(version);
-            StringMap tags = new StringMap();
-            ver.region("meta", stream, counter, in -> tags.putAll(ver.readStringMap(in)));
+            StringMap tags = ver.readMetaTags(stream, counter);
             return new Map(file, tags.getInt("width"), tags.getInt("height"), tags, custom, version, Version.build);
         }
     }
@@ -69,7 +83,6 @@ public class MapIO{
             SaveIO.readHeader(stream);
             int version = stream.readInt();
             SaveVersion ver = SaveIO.getSaveWriter(version);
-            ver.region("meta", stream, counter, ver::readStringMap);
 
             Pixmap floors = new Pixmap(map.width, map.height);
             Pixmap walls = new Pixmap(map.width, map.height);
@@ -88,8 +101,7 @@ public class MapIO{
                 }
             };
 
-            ver.region("content", stream, counter, ver::readContentHeader);
-            ver.region("preview_map", stream, counter, in -> ver.readMap(in, new WorldContext(){
+            ver.readMapPreview(stream, counter, new WorldContext(){
                 @Override public void resize(int width, int height){}
                 @Override public boolean isGenerating(){return false;}
                 @Override public void begin(){
@@ -139,7 +151,7 @@ public class MapIO{
                     }
                     return tile;
                 }
-            }));
+            });
 
             floors.draw(walls, true);
             walls.dispose();
@@ -2,16 +2,20 @@ package mindustry.io;
 
 import arc.*;
 import arc.files.*;
+import arc.func.*;
 import arc.struct.*;
 import arc.util.*;
 import arc.util.io.*;
 import mindustry.*;
 import mindustry.game.EventType.*;
+import mindustry.io.SaveFileReader.*;
 import mindustry.io.versions.*;
 import mindustry.world.*;
 
 import java.io.*;
+import java.nio.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.zip.*;
 
 import static mindustry.Vars.*;
@@ -20,7 +24,12 @@ public class SaveIO{
     /** Save format header. */
     public static final byte[] header = {'M', 'S', 'A', 'V'};
     public static final IntMap<SaveVersion> versions = new IntMap<>();
-    public static final Seq<SaveVersion> versionArray = Seq.with(new Save1(), new Save2(), new Save3(), new Save4(), new Save5(), new Save6(), new Save7(), new Save8());
+    public static final Seq<SaveVersion> versionArray = Seq.with(new Save1(), new Save2(), new Save3(), new Save4(), new Save5(), new Save6(), new Save7(), new Save8(), new Save9(), new Save10());
+
+    private static final ObjectMap<String, SaveIndex> indices = new ObjectMap<>();
+
+    /** Writes saves started with {@link #saveAsync(Fi, Runnable, Cons)}. Single-threaded, so saves finish in order. */
+    private static final ExecutorService saveExecutor = Threads.executor("Save Writer", 1);
 
     static{
         for(SaveVersion version : versionArray){
@@ -47,6 +56,61 @@ public class SaveIO{
         }
     }
 
+    /**
+     * Saves the current state to a file without blocking on compression or file IO.
+     * The world is serialized into memory on the calling thread, which must be the main thread; this is the consistent snapshot.
+     * Compressing and writing the snapshot happens on a background thread, see {@link SaveVersion#writeDeferred(StringMap)}. The data is written to a temporary file first,
+     * then the old file is moved to its backup (see {@link #backupFileFor(Fi)}) and the temporary file is renamed into place.
+     * @param done called on the main thread when the file has been written. May be null.
+     * @param error called on the main thread if writing fails. May be null, in which case the error is logged.
+     */
+    public static void saveAsync(Fi file, @Nullable Runnable done, @Nullable Cons<Throwable> error){
+        IORunner<DataOutputStream> snapshot = writeDeferred(null);
+
+        saveExecutor.submit(() -> {
+            try{
+                writeSnapshot(file, snapshot);
+                if(done != null) Core.app.post(done);
+            }catch(Throwable e){
+                if(error != null){
+                    Core.app.post(() -> error.get(e));
+                }else{
+                    Log.err("Failed to write save " + file, e);
+                }
+            }
+        });
+    }
+
+    /** Blocks until every save started with {@link #saveAsync(Fi, Runnable, Cons)} has been written. */
+    public static void awaitSaves(){
+        try{
+            //the executor has a single thread, so this runs after every pending save
+            saveExecutor.submit(() -> {}).get();
+        }catch(Exception e){
+            Log.err(e);
+        }
+    }
+
+    private static void writeSnapshot(Fi file, IORunner<DataOutputStream> snapshot) throws IOException{
+        Fi temp = file.sibling(file.name() + ".tmp");
+        try(DataOutputStream out = new DataOutputStream(compressedStream(temp.write(false, bufferSize)))){
+            snapshot.accept(out);
+        }
+
+        boolean exists = file.exists();
+        if(exists) file.moveTo(backupFileFor(file));
+        try{
+            //a rename within the same directory is atomic on most file systems; fall back to copying otherwise
+            if(!temp.file().renameTo(file.file())){
+                temp.moveTo(file);
+            }
+        }catch(Throwable e){
+            temp.delete();
+            if(exists) backupFileFor(file).moveTo(file);
+            throw e;
+        }
+    }
+
     public static DataInputStream getStream(Fi file){
         return new DataInputStream(new InflaterInputStream(file.read(bufferSize)));
     }
@@ -77,6 +141,13 @@ public class SaveIO{
         }
     }
 
+    /** @return the shared meta index of a directory of saves or maps. */
+    public static SaveIndex indexFor(Fi directory){
+        synchronized(indices){
+            return indices.get(directory.absolutePath(), () -> new SaveIndex(directory));
+        }
+    }
+
     public static SaveMeta getMeta(Fi file){
         try{
             return getMeta(getStream(file));
@@ -112,7 +183,29 @@ public class SaveIO{
     }
 
     public static void write(Fi file, StringMap tags){
-        write(new FastDeflaterOutputStream(file.write(false, bufferSize)), tags);
+        write(compressedStream(file.write(false, bufferSize)), tags);
+    }
+
+    /**
+     * @return the zlib stream that save files are written through. Versions that compress their own regions only get stored blocks,
+     * as compressing their data again would cost time without making the file smaller.
+     */
+    static OutputStream compressedStream(OutputStream output){
+        if(!getVersion().compressesRegions()){
+            return new FastDeflaterOutputStream(output);
+        }
+
+        Deflater deflater = new Deflater(Deflater.NO_COMPRESSION);
+        return new DeflaterOutputStream(output, deflater, bufferSize){
+            @Override
+            public void close() throws IOException{
+                try{
+                    super.close();
+                }finally{
+                    deflater.end();
+                }
+            }
+        };
     }
 
     public static void write(Fi file){
@@ -136,6 +229,26 @@ public class SaveIO{
         }
     }
 
+    /**
+     * Serializes the current state on the calling thread.
+     * @return a runner that writes the whole save, header included, to an uncompressed stream. It can run on another thread.
+     */
+    static IORunner<DataOutputStream> writeDeferred(StringMap tags){
+        try{
+            Events.fire(new SaveWriteEvent());
+            SaveVersion ver = getVersion();
+            IORunner<DataOutputStream> body = ver.writeDeferred(tags == null ? new StringMap() : tags);
+
+            return stream -> {
+                stream.write(header);
+                stream.writeInt(ver.version);
+                body.accept(stream);
+            };
+        }catch(Throwable e){
+            throw new RuntimeException(e);
+        }
+    }
+
     public static void load(String saveName) throws SaveException{
         load(saveDirectory.child(saveName + ".msav"));
     }
@@ -147,18 +260,60 @@ public class SaveIO{
     public static void load(Fi file, WorldContext context) throws SaveException{
         try{
             //try and load; if any exception at all occurs
-            load(new InflaterInputStream(file.read(bufferSize)), context);
+            load(inflatedStream(file), context);
         }catch(SaveException e){
             Log.err(e);
             Fi backup = file.sibling(file.name() + "-backup." + file.extension());
             if(backup.exists()){
-                load(new InflaterInputStream(backup.read(bufferSize)), context);
+                load(inflatedStream(backup), context);
             }else{
                 throw new SaveException(e.getCause());
             }
         }
     }
 
+    private static InputStream inflatedStream(Fi file) throws SaveException{
+        try{
+            return new ByteBufferInputStream(inflate(file));
+        }catch(Throwable e){
+            throw new SaveException(e);
+        }
+    }
+
+    /**
+     * Reads a whole save or map file and inflates it into a single buffer.
+     * Much faster to decode than an {@link InflaterInputStream}, which inflates byte-by-byte for every primitive read.
+     */
+    public static ByteBuffer inflate(Fi file) throws IOException{
+        byte[] input = file.readBytes();
+        Inflater inflater = new Inflater();
+
+        try{
+            inflater.setInput(input);
+            //saves usually compress to between a third and a fifth of their size
+            byte[] output = new byte[Math.max(input.length * 4, 1024)];
+            int length = 0;
+
+            while(!inflater.finished()){
+                if(length == output.length){
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+
+                int read = inflater.inflate(output, length, output.length - length);
+                if(read == 0 && (inflater.needsInput() || inflater.needsDictionary())){
+                    throw new EOFException("Unexpected end of save file: " + file);
+                }
+                length += read;
+            }
+
+            return ByteBuffer.wrap(output, 0, length);
+        }catch(DataFormatException e){
+            throw new IOException("Invalid save file: " + file, e);
+        }finally{
+            inflater.end();
+        }
+    }
+
     /** Loads from a deflated (!) input stream. */
     public static void load(InputStream is, WorldContext context) throws SaveException{
         try(CounterInputStream counter = new CounterInputStream(is); DataInputStream stream = new DataInputStream(counter)){
@@ -0,0 +1,157 @@
+package mindustry.io;
+
+import arc.files.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.io.*;
+import mindustry.*;
+
+import java.io.*;
+import java.util.zip.*;
+
+/**
+ * On-disk cache of the meta tags of every save or map in a directory.
+ * Entries are keyed by file name and validated by file size and modification time, so listing a directory
+ * only needs to open files that changed since the index was last written.
+ * Thread-safe; files are read outside of the lock.
+ */
+public class SaveIndex{
+    /** Name of the index file inside the indexed directory. */
+    public static final String fileName = ".meta-index";
+    static final int indexVersion = 1;
+
+    public final Fi directory;
+    private final Fi file;
+    private final ObjectMap<String, Entry> entries = new ObjectMap<>();
+    private boolean loaded, dirty;
+
+    public SaveIndex(Fi directory){
+        this.directory = directory;
+        this.file = directory.child(fileName);
+    }
+
+    /** @return cached meta of a file in this directory, reading it if the file changed. Null if the file is not a valid save. */
+    public @Nullable Entry get(Fi save){
+        String name = save.name();
+        long length = save.length(), modified = save.lastModified();
+
+        synchronized(this){
+            if(!loaded) load();
+
+            Entry entry = entries.get(name);
+            if(entry != null && entry.length == length && entry.modified == modified){
+                return entry.tags == null ? null : entry;
+            }
+        }
+
+        Entry entry = new Entry(length, modified);
+        try{
+            try(CounterInputStream counter = new CounterInputStream(new InflaterInputStream(save.read(Vars.bufferSize))); DataInputStream stream = new DataInputStream(counter)){
+                SaveIO.readHeader(stream);
+                entry.version = stream.readInt();
+                SaveVersion ver = SaveIO.getSaveWriter(entry.version);
+                if(ver == null) throw new IOException("Unknown save version: " + entry.version);
+
+                entry.tags = ver.readMetaTags(stream, counter);
+            }
+        }catch(Throwable e){
+            //remembered as invalid, so broken files are not read again until they change
+            entry.tags = null;
+        }
+
+        synchronized(this){
+            entries.put(name, entry);
+            dirty = true;
+        }
+        return entry.tags == null ? null : entry;
+    }
+
+    /** @return the cached meta tags of a file, or null if it is not a valid save. */
+    public @Nullable StringMap tags(Fi save){
+        Entry entry = get(save);
+        return entry == null ? null : entry.tags;
+    }
+
+    /** Removes entries of deleted files and writes the index if anything changed. */
+    public synchronized void flush(){
+        if(!loaded) return;
+
+        for(var name : entries.keys().toSeq()){
+            if(!directory.child(name).exists()){
+                entries.remove(name);
+                dirty = true;
+            }
+        }
+
+        if(!dirty) return;
+
+        try(DataOutputStream stream = new DataOutputStream(file.write(false, Vars.bufferSize))){
+            stream.writeInt(indexVersion);
+            stream.writeInt(entries.size);
+            for(var e : entries){
+                Entry entry = e.value;
+                stream.writeUTF(e.key);
+                stream.writeLong(entry.length);
+                stream.writeLong(entry.modified);
+                stream.writeBoolean(entry.tags != null);
+                if(entry.tags != null){
+                    stream.writeInt(entry.version);
+                    stream.writeShort(entry.tags.size);
+                    for(var tag : entry.tags){
+                        stream.writeUTF(tag.key);
+                        stream.writeUTF(tag.value);
+                    }
+                }
+            }
+            dirty = false;
+        }catch(Throwable e){
+            Log.err("Failed to write save index " + file, e);
+            file.delete();
+        }
+    }
+
+    private void load(){
+        loaded = true;
+        if(!file.exists()) return;
+
+        try(DataInputStream stream = new DataInputStream(file.read(Vars.bufferSize))){
+            if(stream.readInt() != indexVersion) return;
+
+            int amount = stream.readInt();
+            for(int i = 0; i < amount; i++){
+                String name = stream.readUTF();
+                Entry entry = new Entry(stream.readLong(), stream.readLong());
+                if(stream.readBoolean()){
+                    entry.version = stream.readInt();
+                    entry.tags = new StringMap();
+                    int tags = stream.readUnsignedShort();
+                    for(int j = 0; j < tags; j++){
+                        entry.tags.put(stream.readUTF(), stream.readUTF());
+                    }
+                }
+                entries.put(name, entry);
+            }
+        }catch(Throwable e){
+            //a corrupt index is simply rebuilt
+            Log.warn("Discarding corrupt save index @: @", file, e.toString());
+            entries.clear();
+            dirty = true;
+        }
+    }
+
+    public static class Entry{
+        public final long length, modified;
+        public int version;
+        /** Meta tags of the save, or null if it could not be read. */
+        public @Nullable StringMap tags;
+
+        Entry(long length, long modified){
+            this.length = length;
+            this.modified = modified;
+        }
+
+        public SaveMeta meta(){
+            return SaveVersion.createMeta(tags);
+        }
+    }
+}
@@ -49,7 +49,10 @@ public abstract class SaveVersion extends SaveFileReader{
 
     public SaveMeta getMeta(DataInput stream) throws IOException{
         stream.readInt(); //length of data, doesn't matter here
-        StringMap map = readStringMap(stream);
+        return createMeta(readStringMap(stream));
+    }
+
+    public static SaveMeta createMeta(StringMap map){
         return new SaveMeta(
             map.getInt("version"),
             map.getLong("saved"),
@@ -82,6 +85,25 @@ public abstract class SaveVersion extends SaveFileReader{
         }
     }
 
+    /** @return whether this version compresses its own regions. If so, the outer zlib stream of the file only stores the data. */
+    public boolean compressesRegions(){
+        return false;
+    }
+
+    /** Reads the tags of the meta region. The stream must be positioned right after the version number. */
+    public StringMap readMetaTags(DataInputStream stream, CounterInputStream counter) throws IOException{
+        StringMap tags = new StringMap();
+        region("meta", stream, counter, in -> tags.putAll(readStringMap(in)));
+        return tags;
+    }
+
+    /** Reads the content header and map only, skipping the meta. Used for map previews; nothing after the map is read. */
+    public void readMapPreview(DataInputStream stream, CounterInputStream counter, WorldContext context) throws IOException{
+        region("meta", stream, counter, this::readStringMap);
+        region("content", stream, counter, this::readContentHeader);
+        region("preview_map", stream, counter, in -> readMap(in, context));
+    }
+
     public void write(DataOutputStream stream, StringMap extraTags) throws IOException{
         region("meta", stream, out -> writeMeta(out, extraTags));
         region("content", stream, this::writeContentHeader);
@@ -91,6 +113,16 @@ public abstract class SaveVersion extends SaveFileReader{
         region("custom", stream, s -> writeCustomChunks(s, false));
     }
 
+    /**
+     * Serializes the game state on the calling thread, and leaves the rest of writing to the returned runner.
+     * The runner only works on data it owns, so it can run later on another thread. By default, the save is buffered in memory.
+     */
+    public IORunner<DataOutputStream> writeDeferred(StringMap extraTags) throws IOException{
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024 * 64);
+        write(new DataOutputStream(buffer), extraTags);
+        return buffer::writeTo;
+    }
+
     public void writeCustomChunks(DataOutput stream, boolean net) throws IOException{
         var chunks = customChunks.orderedKeys().select(s -> customChunks.get(s).shouldWrite() && (!net || customChunks.get(s).writeNet()));
         stream.writeInt(chunks.size);
@@ -206,7 +238,12 @@ public abstract class SaveVersion extends SaveFileReader{
         stream.writeShort(world.width());
         stream.writeShort(world.height());
 
-        //floor + overlay
+        writeMapFloors(stream);
+        writeMapBlocks(stream);
+    }
+
+    /** Writes floors and overlays of every tile. */
+    public void writeMapFloors(DataOutput stream) throws IOException{
         for(int i = 0; i < world.width() * world.height(); i++){
             Tile tile = world.rawTile(i % world.width(), i / world.width());
             stream.writeShort(tile.floorID());
@@ -226,8 +263,10 @@ public abstract class SaveVersion extends SaveFileReader{
             stream.writeByte(consecutives);
             i += consecutives;
         }
+    }
 
-        //blocks
+    /** Writes blocks and their buildings of every tile. */
+    public void writeMapBlocks(DataOutput stream) throws IOException{
         for(int i = 0; i < world.width() * world.height(); i++){
             Tile tile = world.rawTile(i % world.width(), i / world.width());
             stream.writeShort(tile.blockID());
@@ -283,75 +322,83 @@ public abstract class SaveVersion extends SaveFileReader{
             context.resize(width, height);
 
             //read floor and create tiles first
-            for(int i = 0; i < width * height; i++){
-                int x = i % width, y = i / width;
-                short floorid = stream.readShort();
-                short oreid = stream.readShort();
-                int consecutives = stream.readUnsignedByte();
-                if(content.block(floorid) == Blocks.air) floorid = Blocks.stone.id;
+            readMapFloors(stream, context, width, height);
+            readMapBlocks(stream, context, width, height);
+        }finally{
+            if(!generating) context.end();
+        }
+    }
 
-                context.create(x, y, floorid, oreid, (short)0);
+    /** Reads floors and creates the tiles. Must be called between {@link WorldContext#begin()} and {@link WorldContext#end()}. */
+    public void readMapFloors(DataInput stream, WorldContext context, int width, int height) throws IOException{
+        for(int i = 0; i < width * height; i++){
+            int x = i % width, y = i / width;
+            short floorid = stream.readShort();
+            short oreid = stream.readShort();
+            int consecutives = stream.readUnsignedByte();
+            if(content.block(floorid) == Blocks.air) floorid = Blocks.stone.id;
 
-                for(int j = i + 1; j < i + 1 + consecutives; j++){
-                    int newx = j % width, newy = j / width;
-                    context.create(newx, newy, floorid, oreid, (short)0);
-                }
+            context.create(x, y, floorid, oreid, (short)0);
 
-                i += consecutives;
+            for(int j = i + 1; j < i + 1 + consecutives; j++){
+                int newx = j % width, newy = j / width;
+                context.create(newx, newy, floorid, oreid, (short)0);
             }
 
-            //read blocks
-            for(int i = 0; i < width * height; i++){
-                Block block = content.block(stream.readShort());
-                Tile tile = context.tile(i);
-                if(block == null) block = Blocks.air;
-                boolean isCenter = true;
-                byte packedCheck = stream.readByte();
-                boolean hadEntity = (packedCheck & 1) != 0;
-                boolean hadData = (packedCheck & 2) != 0;
-
-                if(hadEntity){
-                    isCenter = stream.readBoolean();
-                }
+            i += consecutives;
+        }
+    }
 
-                //set block only if this is the center; otherwise, it's handled elsewhere
-                if(isCenter){
-                    tile.setBlock(block);
-                }
+    /** Reads blocks and buildings. Tiles must have been created by {@link #readMapFloors(DataInput, WorldContext, int, int)}. */
+    public void readMapBlocks(DataInput stream, WorldContext context, int width, int height) throws IOException{
+        for(int i = 0; i < width * height; i++){
+            Block block = content.block(stream.readShort());
+            Tile tile = context.tile(i);
+            if(block == null) block = Blocks.air;
+            boolean isCenter = true;
+            byte packedCheck = stream.readByte();
+            boolean hadEntity = (packedCheck & 1) != 0;
+            boolean hadData = (packedCheck & 2) != 0;
+
+            if(hadEntity){
+                isCenter = stream.readBoolean();
+            }
 
-                if(hadEntity){
-                    if(isCenter){ //only read entity for center blocks
-                        if(block.hasBuilding()){
-                            try{
-                                readChunk(stream, true, in -> {
-                                    byte revision = in.readByte();
-                                    tile.build.readAll(Reads.get(in), revision);
-                                });
-                            }catch(Throwable e){
-                                throw new IOException("Failed to read tile entity of block: " + block, e);
-                            }
-                        }else{
-                            //skip the entity region, as the entity and its IO code are now gone
-                            skipChunk(stream, true);
-                        }
+            //set block only if this is the center; otherwise, it's handled elsewhere
+            if(isCenter){
+                tile.setBlock(block);
+            }
 
-                        context.onReadBuilding();
+            if(hadEntity){
+                if(isCenter){ //only read entity for center blocks
+                    if(block.hasBuilding()){
+                        try{
+                            readChunk(stream, true, in -> {
+                                byte revision = in.readByte();
+                                tile.build.readAll(Reads.get(in), revision);
+                            });
+                        }catch(Throwable e){
+                            throw new IOException("Failed to read tile entity of block: " + block, e);
+                        }
+                    }else{
+                        //skip the entity region, as the entity and its IO code are now gone
+                        skipChunk(stream, true);
                     }
-                }else if(hadData){
-                    tile.setBlock(block);
-                    tile.data = stream.readByte();
-                }else{
-                    int consecutives = stream.readUnsignedByte();
 
-                    for(int j = i + 1; j < i + 1 + consecutives; j++){
-                        context.tile(j).setBlock(block);
-                    }
+                    context.onReadBuilding();
+                }
+            }else if(hadData){
+                tile.setBlock(block);
+                tile.data = stream.readByte();
+            }else{
+                int consecutives = stream.readUnsignedByte();
 
-                    i += consecutives;
+                for(int j = i + 1; j < i + 1 + consecutives; j++){
+                    context.tile(j).setBlock(block);
                 }
+
+                i += consecutives;
             }
-        }finally{
-            if(!generating) context.end();
         }
     }
 
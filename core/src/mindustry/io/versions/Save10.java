@@ -0,0 +1,215 @@
+package mindustry.io.versions;
+
+import arc.struct.*;
+import arc.util.io.*;
+import mindustry.content.*;
+import mindustry.world.*;
+
+import java.io.*;
+import java.util.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Stores the map as separate layers of floor, overlay, block and tile flag IDs instead of interleaved per-tile records.
+ * Each layer is a palette of IDs followed by runs of palette indices; run lengths are varints, so uniform areas of any size take a single run.
+ * Building and tile data follows the layers, in tile order.
+ */
+public class Save10 extends Save9{
+    static final int flagBuilding = 1, flagData = 2, flagCenter = 4;
+
+    private short[] floors = {}, overlays = {}, blocks = {}, flags = {};
+    private final IntIntMap paletteIndex = new IntIntMap();
+    private final IntSeq palette = new IntSeq();
+
+    public Save10(){
+        super(10);
+    }
+
+    @Override
+    public void writeFloorFrame(DataOutput stream) throws IOException{
+        Tiles tiles = world.tiles;
+        int size = tiles.width * tiles.height;
+        ensureLayers(size);
+
+        for(int i = 0; i < size; i++){
+            Tile tile = tiles.geti(i);
+            floors[i] = tile.floorID();
+            overlays[i] = tile.overlayID();
+        }
+
+        stream.writeShort(tiles.width);
+        stream.writeShort(tiles.height);
+        writeLayer(stream, floors, size);
+        writeLayer(stream, overlays, size);
+    }
+
+    @Override
+    public void writeBlockFrame(DataOutput stream) throws IOException{
+        Tiles tiles = world.tiles;
+        int size = tiles.width * tiles.height;
+        ensureLayers(size);
+
+        for(int i = 0; i < size; i++){
+            Tile tile = tiles.geti(i);
+            blocks[i] = tile.blockID();
+            flags[i] = (short)(
+                (tile.build != null ? flagBuilding : 0) |
+                (tile.block().saveData ? flagData : 0) |
+                (tile.build != null && tile.isCenter() ? flagCenter : 0)
+            );
+        }
+
+        writeLayer(stream, blocks, size);
+        writeLayer(stream, flags, size);
+
+        //only write the entity for multiblocks once - in the center
+        for(int i = 0; i < size; i++){
+            int flag = flags[i];
+            if(flag == 0) continue;
+
+            Tile tile = tiles.geti(i);
+            if((flag & flagBuilding) != 0){
+                if((flag & flagCenter) != 0){
+                    writeChunk(stream, true, out -> {
+                        out.writeByte(tile.build.version());
+                        tile.build.writeAll(Writes.get(out));
+                    });
+                }
+            }else{
+                stream.writeByte(tile.data);
+            }
+        }
+    }
+
+    @Override
+    public void readFloorFrame(DataInput stream, WorldContext context, int width, int height) throws IOException{
+        int size = width * height;
+        ensureLayers(size);
+        readLayer(stream, floors, size);
+        readLayer(stream, overlays, size);
+
+        for(int i = 0; i < size; i++){
+            short floor = floors[i];
+            if(content.block(floor) == Blocks.air) floor = Blocks.stone.id;
+
+            context.create(i % width, i / width, floor, overlays[i], 0);
+        }
+    }
+
+    @Override
+    public void readBlockFrame(DataInput stream, WorldContext context, int width, int height) throws IOException{
+        int size = width * height;
+        ensureLayers(size);
+        readLayer(stream, blocks, size);
+        readLayer(stream, flags, size);
+
+        for(int i = 0; i < size; i++){
+            Block block = content.block(blocks[i]);
+            if(block == null) block = Blocks.air;
+            Tile tile = context.tile(i);
+            int flag = flags[i];
+            boolean hadEntity = (flag & flagBuilding) != 0;
+
+            //set block only if this is the center; otherwise, it's handled elsewhere
+            if(!hadEntity || (flag & flagCenter) != 0){
+                tile.setBlock(block);
+            }
+
+            if(hadEntity){
+                if((flag & flagCenter) != 0){
+                    if(block.hasBuilding()){
+                        try{
+                            readChunk(stream, true, in -> {
+                                byte revision = in.readByte();
+                                tile.build.readAll(Reads.get(in), revision);
+                            });
+                        }catch(Throwable e){
+                            throw new IOException("Failed to read tile entity of block: " + block, e);
+                        }
+                    }else{
+                        //skip the entity region, as the entity and its IO code are now gone
+                        skipChunk(stream, true);
+                    }
+
+                    context.onReadBuilding();
+                }
+            }else if((flag & flagData) != 0){
+                tile.data = stream.readByte();
+            }
+        }
+    }
+
+    /** Writes the first {@code size} values of a layer as a palette, followed by runs of palette indices. */
+    void writeLayer(DataOutput stream, short[] layer, int size) throws IOException{
+        paletteIndex.clear();
+        palette.clear();
+
+        //only run starts can introduce new IDs
+        for(int i = 0; i < size; i++){
+            if((i == 0 || layer[i] != layer[i - 1]) && !paletteIndex.containsKey(layer[i])){
+                paletteIndex.put(layer[i], palette.size);
+                palette.add(layer[i]);
+            }
+        }
+
+        writeVarInt(stream, palette.size);
+        for(int i = 0; i < palette.size; i++){
+            stream.writeShort(palette.items[i]);
+        }
+
+        for(int i = 0; i < size;){
+            short id = layer[i];
+            int end = i + 1;
+            while(end < size && layer[end] == id) end++;
+
+            writeVarInt(stream, paletteIndex.get(id));
+            writeVarInt(stream, end - i);
+            i = end;
+        }
+    }
+
+    void readLayer(DataInput stream, short[] layer, int size) throws IOException{
+        short[] ids = new short[readVarInt(stream)];
+        for(int i = 0; i < ids.length; i++){
+            ids[i] = stream.readShort();
+        }
+
+        for(int i = 0; i < size;){
+            int index = readVarInt(stream), length = readVarInt(stream);
+            if(index >= ids.length || length <= 0 || length > size - i){
+                throw new IOException("Invalid layer run: palette index " + index + ", length " + length + " at tile " + i + "/" + size);
+            }
+
+            Arrays.fill(layer, i, i + length, ids[index]);
+            i += length;
+        }
+    }
+
+    void ensureLayers(int size){
+        if(floors.length < size){
+            floors = new short[size];
+            overlays = new short[size];
+            blocks = new short[size];
+            flags = new short[size];
+        }
+    }
+
+    static void writeVarInt(DataOutput stream, int value) throws IOException{
+        while((value & ~0x7f) != 0){
+            stream.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        stream.writeByte(value);
+    }
+
+    static int readVarInt(DataInput stream) throws IOException{
+        int value = 0;
+        for(int shift = 0; shift < 32; shift += 7){
+            byte b = stream.readByte();
+            value |= (b & 0x7f) << shift;
+            if((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint.");
+    }
+}
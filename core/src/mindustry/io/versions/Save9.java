@@ -0,0 +1,278 @@
+package mindustry.io.versions;
+
+import arc.struct.*;
+import arc.util.*;
+import arc.util.io.*;
+import mindustry.io.*;
+import mindustry.world.*;
+import net.jpountz.lz4.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Splits the save into independently LZ4-compressed frames: meta, content header, floors, blocks, entities, markers and custom chunks.
+ * Frames are serialized on the calling thread, but compressed and decompressed in parallel on {@link #frameExecutor}.
+ * With {@link #writeDeferred(StringMap)}, compression is left to the thread that writes the save.
+ * Frame layout: frame count, then for every frame its uncompressed length, compressed length and compressed bytes.
+ */
+public class Save9 extends SaveVersion{
+    static final String[] frameNames = {"meta", "content", "floors", "blocks", "entities", "markers", "custom"};
+    static final int frameMeta = 0, frameContent = 1, frameFloors = 2, frameBlocks = 3, frameEntities = 4, frameMarkers = 5, frameCustom = 6;
+    /** Frames smaller than this are compressed or decompressed on the calling thread, as a task would cost more than it saves. */
+    static final int minParallelSize = 1024 * 16;
+
+    /**
+     * Runs frame compression and decompression. This is not {@link mindustry.Vars#mainExecutor}, because save metadata is also read from tasks on that executor;
+     * those would block on frame tasks queued behind them and deadlock the pool. Frame tasks never wait on other tasks.
+     */
+    static final ExecutorService frameExecutor = Threads.executor("Save Frames", OS.cores);
+
+    static final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    static final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+    private final ReusableByteOutStream[] frameBuffers = new ReusableByteOutStream[frameNames.length];
+    private final DataOutputStream[] frameStreams = new DataOutputStream[frameNames.length];
+    private final byte[][] compressed = new byte[frameNames.length][0];
+    private final int[] compressedLengths = new int[frameNames.length];
+
+    public Save9(){
+        this(9);
+    }
+
+    protected Save9(int version){
+        super(version);
+
+        for(int i = 0; i < frameNames.length; i++){
+            frameBuffers[i] = new ReusableByteOutStream();
+            frameStreams[i] = new DataOutputStream(frameBuffers[i]);
+        }
+    }
+
+    @Override
+    public boolean compressesRegions(){
+        return true;
+    }
+
+    @Override
+    public SaveMeta getMeta(DataInput stream) throws IOException{
+        return createMeta(readStringMap(input(readFrames(stream, 1)[frameMeta])));
+    }
+
+    @Override
+    public StringMap readMetaTags(DataInputStream stream, CounterInputStream counter) throws IOException{
+        StringMap tags = new StringMap();
+        frame("meta", readFrames(stream, 1)[frameMeta], in -> tags.putAll(readStringMap(in)));
+        return tags;
+    }
+
+    @Override
+    public void readMapPreview(DataInputStream stream, CounterInputStream counter, WorldContext context) throws IOException{
+        byte[][] frames = readFrames(stream, frameBlocks + 1);
+        frame("content", frames[frameContent], this::readContentHeader);
+        readFramedMap(frames, context);
+    }
+
+    @Override
+    public void read(DataInputStream stream, CounterInputStream counter, WorldContext context) throws IOException{
+        byte[][] frames = readFrames(stream, frameNames.length);
+
+        frame("meta", frames[frameMeta], in -> readMeta(in, context));
+        frame("content", frames[frameContent], this::readContentHeader);
+
+        try{
+            readFramedMap(frames, context);
+            frame("entities", frames[frameEntities], this::readEntities);
+            frame("markers", frames[frameMarkers], this::readMarkers);
+            frame("custom", frames[frameCustom], this::readCustomChunks);
+        }finally{
+            content.setTemporaryMapper(null);
+        }
+    }
+
+    @Override
+    public void write(DataOutputStream stream, StringMap extraTags) throws IOException{
+        writeFrames(extraTags);
+
+        byte[][] frames = new byte[frameNames.length][];
+        int[] lengths = new int[frameNames.length];
+        for(int i = 0; i < frameNames.length; i++){
+            frames[i] = frameBuffers[i].getBytes();
+            lengths[i] = frameBuffers[i].size();
+        }
+        writeCompressed(stream, frames, lengths, compressed, compressedLengths);
+    }
+
+    /** Serializes the frames on the calling thread. The returned runner compresses copies of them, so it can run on another thread. */
+    @Override
+    public IORunner<DataOutputStream> writeDeferred(StringMap extraTags) throws IOException{
+        writeFrames(extraTags);
+
+        byte[][] frames = new byte[frameNames.length][];
+        int[] lengths = new int[frameNames.length];
+        for(int i = 0; i < frameNames.length; i++){
+            lengths[i] = frameBuffers[i].size();
+            frames[i] = Arrays.copyOf(frameBuffers[i].getBytes(), lengths[i]);
+        }
+        return stream -> writeCompressed(stream, frames, lengths, new byte[frameNames.length][0], new int[frameNames.length]);
+    }
+
+    void writeFrames(StringMap extraTags) throws IOException{
+        //serialization reads game state, so it has to happen sequentially on this thread
+        writeFrame(frameMeta, out -> writeMeta(out, extraTags));
+        writeFrame(frameContent, this::writeContentHeader);
+        writeFrame(frameFloors, this::writeFloorFrame);
+        writeFrame(frameBlocks, this::writeBlockFrame);
+        writeFrame(frameEntities, this::writeEntities);
+        writeFrame(frameMarkers, this::writeMarkers);
+        writeFrame(frameCustom, out -> writeCustomChunks(out, false));
+    }
+
+    /** Compresses serialized frames and writes them to the stream. Only touches the given arrays, so it can run on any thread. */
+    static void writeCompressed(DataOutputStream stream, byte[][] frames, int[] lengths, byte[][] compressed, int[] compressedLengths) throws IOException{
+        Seq<Future<?>> tasks = new Seq<>();
+        for(int i = 0; i < frames.length; i++){
+            int index = i;
+            if(lengths[i] >= minParallelSize){
+                tasks.add(frameExecutor.submit(() -> compressFrame(frames, lengths, compressed, compressedLengths, index)));
+            }else{
+                compressFrame(frames, lengths, compressed, compressedLengths, index);
+            }
+        }
+        await(tasks);
+
+        stream.writeInt(frames.length);
+        for(int i = 0; i < frames.length; i++){
+            stream.writeInt(lengths[i]);
+            stream.writeInt(compressedLengths[i]);
+            stream.write(compressed[i], 0, compressedLengths[i]);
+        }
+    }
+
+    void readFramedMap(byte[][] frames, WorldContext context) throws IOException{
+        DataInputStream floors = input(frames[frameFloors]), blocks = input(frames[frameBlocks]);
+        int width = floors.readUnsignedShort(), height = floors.readUnsignedShort();
+
+        boolean generating = context.isGenerating();
+        if(!generating) context.begin();
+        try{
+            context.resize(width, height);
+
+            frame("floors", frames[frameFloors], floors, in -> readFloorFrame(in, context, width, height));
+            frame("blocks", frames[frameBlocks], blocks, in -> readBlockFrame(in, context, width, height));
+        }finally{
+            if(!generating) context.end();
+        }
+    }
+
+    /** Writes the world size, followed by floors and overlays. */
+    public void writeFloorFrame(DataOutput stream) throws IOException{
+        stream.writeShort(world.width());
+        stream.writeShort(world.height());
+        writeMapFloors(stream);
+    }
+
+    /** Writes blocks and buildings. */
+    public void writeBlockFrame(DataOutput stream) throws IOException{
+        writeMapBlocks(stream);
+    }
+
+    /** Reads floors and overlays; the world size has already been read. */
+    public void readFloorFrame(DataInput stream, WorldContext context, int width, int height) throws IOException{
+        readMapFloors(stream, context, width, height);
+    }
+
+    /** Reads blocks and buildings. */
+    public void readBlockFrame(DataInput stream, WorldContext context, int width, int height) throws IOException{
+        readMapBlocks(stream, context, width, height);
+    }
+
+    void writeFrame(int index, IORunner<DataOutput> runner) throws IOException{
+        try{
+            frameBuffers[index].reset();
+            runner.accept(frameStreams[index]);
+        }catch(Throwable e){
+            throw new IOException("Error writing region \"" + frameNames[index] + "\".", e);
+        }
+    }
+
+    static void compressFrame(byte[][] frames, int[] lengths, byte[][] compressed, int[] compressedLengths, int index){
+        int length = lengths[index];
+        int max = compressor.maxCompressedLength(length);
+        if(compressed[index].length < max){
+            compressed[index] = new byte[max];
+        }
+        compressedLengths[index] = compressor.compress(frames[index], 0, length, compressed[index], 0, max);
+    }
+
+    /** Reads the first {@code amount} frames and decompresses them. Decompression of a frame overlaps with reading the next one. */
+    byte[][] readFrames(DataInput stream, int amount) throws IOException{
+        int total = stream.readInt();
+        if(total < amount){
+            throw new IOException("Save has too few frames. Expected: " + amount + "; Actual: " + total);
+        }
+
+        byte[][] frames = new byte[amount][];
+        Seq<Future<?>> reads = new Seq<>();
+
+        for(int i = 0; i < amount; i++){
+            int length = stream.readInt(), compressedLength = stream.readInt();
+            byte[] data = new byte[compressedLength];
+            stream.readFully(data);
+
+            int index = i;
+            Runnable decompress = () -> {
+                frames[index] = new byte[length];
+                decompressor.decompress(data, 0, frames[index], 0, length);
+            };
+
+            if(length >= minParallelSize){
+                reads.add(frameExecutor.submit(decompress));
+            }else{
+                decompress.run();
+            }
+        }
+
+        await(reads);
+        return frames;
+    }
+
+    void frame(String name, byte[] data, IORunner<DataInput> runner) throws IOException{
+        frame(name, data, input(data), runner);
+    }
+
+    /** Reads a frame, checking that all of its data was consumed. */
+    void frame(String name, byte[] data, DataInputStream stream, IORunner<DataInput> runner) throws IOException{
+        try{
+            runner.accept(stream);
+        }catch(Throwable e){
+            throw new IOException("Error reading region \"" + name + "\".", e);
+        }
+
+        int remaining = stream.available();
+        if(remaining != 0){
+            throw new IOException("Error reading region \"" + name + "\": read length mismatch. Expected: " + data.length + "; Actual: " + (data.length - remaining));
+        }
+    }
+
+    static DataInputStream input(byte[] data){
+        return new DataInputStream(new ByteBufferInputStream(data));
+    }
+
+    static void await(Seq<Future<?>> futures) throws IOException{
+        try{
+            for(var future : futures){
+                future.get();
+            }
+        }catch(ExecutionException e){
+            throw new IOException(e.getCause());
+        }catch(InterruptedException e){
+            throw new IOException(e);
+        }finally{
+            futures.clear();
+        }
+    }
+}
@@ -89,7 +89,11 @@ public class LExecutor{
         }
 
         if(counter.numval < instructions.length){
-            instructions[(int)(counter.numval++)].run(this);
+            if(logicProfiler != null && logicProfiler.enabled){
+                logicProfiler.run(this, (int)(counter.numval++));
+            }else{
+                instructions[(int)(counter.numval++)].run(this);
+            }
         }
     }
 
@@ -0,0 +1,197 @@
+package mindustry.logic;
+
+import arc.*;
+import arc.files.*;
+import arc.struct.*;
+import arc.util.*;
+import mindustry.game.EventType.*;
+import mindustry.logic.LExecutor.*;
+import mindustry.world.blocks.logic.LogicBlock.*;
+
+/**
+ * Opt-in execution profiler for logic processors.
+ * When enabled, counts every executed instruction per processor, per program counter and per instruction type.
+ * Wall time is sampled once every {@link #sampleInterval} instructions and extrapolated, to keep overhead low.
+ */
+public class LProfiler{
+    /** Whether instructions are currently being profiled. */
+    public boolean enabled;
+    /** Only one in this many instructions is timed. 1 times every instruction. */
+    public int sampleInterval = 16;
+
+    /** Tick at which profiling was last started or cleared. */
+    public long startTime;
+
+    private final ObjectMap<LogicBuild, BuildProfile> builds = new ObjectMap<>();
+    private final ObjectMap<Class<?>, TypeProfile> types = new ObjectMap<>();
+    private int sampleCounter;
+
+    public LProfiler(){
+        Events.on(ResetEvent.class, e -> clear());
+    }
+
+    public void start(int sampleInterval){
+        this.sampleInterval = Math.max(sampleInterval, 1);
+        if(!enabled){
+            clear();
+        }
+        enabled = true;
+    }
+
+    public void stop(){
+        enabled = false;
+    }
+
+    public void clear(){
+        builds.clear();
+        types.clear();
+        sampleCounter = 0;
+        startTime = Time.millis();
+    }
+
+    /** Runs the instruction at the specified counter index, recording statistics. Called by {@link LExecutor#runOnce()}. */
+    public void run(LExecutor exec, int pc){
+        LInstruction inst = exec.instructions[pc];
+        boolean sample = ++sampleCounter >= sampleInterval;
+        long nanos = 0;
+
+        if(sample){
+            sampleCounter = 0;
+            long start = Time.nanos();
+            inst.run(exec);
+            nanos = Time.timeSinceNanos(start) * sampleInterval;
+        }else{
+            inst.run(exec);
+        }
+
+        //processors that are not bound to a building (e.g. the editor) are not tracked individually
+        if(exec.build != null){
+            BuildProfile prof = builds.get(exec.build);
+            if(prof == null){
+                builds.put(exec.build, prof = new BuildProfile(exec.build));
+            }
+            prof.record(pc, exec.instructions.length, nanos);
+        }
+
+        TypeProfile type = types.get(inst.getClass());
+        if(type == null){
+            types.put(inst.getClass(), type = new TypeProfile(inst.getClass()));
+        }
+        type.count ++;
+        type.nanos += nanos;
+    }
+
+    /** @return the profile of the specified processor, or null if it has not executed anything while profiling. */
+    public @Nullable BuildProfile get(LogicBuild build){
+        return builds.get(build);
+    }
+
+    /** @return processor profiles sorted by estimated time spent, highest first. Profiles of removed processors are discarded. */
+    public Seq<BuildProfile> topBuilds(){
+        Seq<BuildProfile> out = new Seq<>();
+        for(var entry : builds.entries()){
+            if(entry.key.isValid()){
+                out.add(entry.value);
+            }
+        }
+        for(var entry : builds.keys().toSeq()){
+            if(!entry.isValid()) builds.remove(entry);
+        }
+        out.sort(p -> -p.nanos);
+        return out;
+    }
+
+    /** @return instruction type profiles sorted by estimated time spent, highest first. */
+    public Seq<TypeProfile> topTypes(){
+        Seq<TypeProfile> out = types.values().toSeq();
+        out.sort(p -> -p.nanos);
+        return out;
+    }
+
+    /** @return a human-readable report of all collected data. */
+    public String report(int maxBuilds){
+        StringBuilder out = new StringBuilder();
+        float seconds = Math.max(Time.timeSinceMillis(startTime) / 1000f, 0.001f);
+
+        out.append("Logic profile over ").append(Strings.fixed(seconds, 1)).append("s, sample interval ").append(sampleInterval).append("\n\n");
+
+        out.append("Instruction types:\n");
+        for(var type : topTypes()){
+            out.append(Strings.format("  @: @ executed, @ ms, @ ns/instruction\n",
+                type.name, type.count, Strings.fixed(type.nanos / 1000000f, 2), type.count == 0 ? 0 : type.nanos / type.count));
+        }
+
+        out.append("\nProcessors:\n");
+        var top = topBuilds();
+        for(int i = 0; i < Math.min(top.size, maxBuilds); i++){
+            var prof = top.get(i);
+            var build = prof.build;
+            out.append(Strings.format("  @ at (@, @), team @: @ executed (@/s), @ ms\n",
+                build.block.name, build.tileX(), build.tileY(), build.team.name,
+                prof.instructions, (int)(prof.instructions / seconds), Strings.fixed(prof.nanos / 1000000f, 2)));
+
+            //list the hottest program counters
+            IntSeq pcs = new IntSeq(prof.pcCounts.length);
+            for(int pc = 0; pc < prof.pcCounts.length; pc++){
+                if(prof.pcCounts[pc] > 0) pcs.add(pc);
+            }
+            long[] nanos = prof.pcNanos;
+            long[] counts = prof.pcCounts;
+            int[] sorted = pcs.toArray();
+            //insertion sort by time, then count; programs are small enough for this to not matter
+            for(int a = 1; a < sorted.length; a++){
+                int value = sorted[a], b = a - 1;
+                while(b >= 0 && (nanos[sorted[b]] < nanos[value] || (nanos[sorted[b]] == nanos[value] && counts[sorted[b]] < counts[value]))){
+                    sorted[b + 1] = sorted[b];
+                    b--;
+                }
+                sorted[b + 1] = value;
+            }
+
+            for(int j = 0; j < Math.min(sorted.length, 5); j++){
+                int pc = sorted[j];
+                String name = pc < build.executor.instructions.length ? build.executor.instructions[pc].getClass().getSimpleName() : "?";
+                out.append(Strings.format("    #@ @: @ executed, @ ms\n", pc, name, counts[pc], Strings.fixed(nanos[pc] / 1000000f, 2)));
+            }
+        }
+
+        return out.toString();
+    }
+
+    /** Writes a full report to the specified file. */
+    public void dump(Fi file){
+        file.writeString(report(Integer.MAX_VALUE));
+    }
+
+    public static class BuildProfile{
+        public final LogicBuild build;
+        public long instructions, nanos;
+        public long[] pcCounts = {}, pcNanos = {};
+
+        public BuildProfile(LogicBuild build){
+            this.build = build;
+        }
+
+        void record(int pc, int length, long time){
+            //code was changed; previous per-counter data is meaningless
+            if(pcCounts.length != length){
+                pcCounts = new long[length];
+                pcNanos = new long[length];
+            }
+
+            instructions ++;
+            nanos += time;
+            pcCounts[pc] ++;
+            pcNanos[pc] += time;
+        }
+    }
+
+    public static class TypeProfile{
+        public final String name;
+        public long count, nanos;
+
+        public TypeProfile(Class<?> type){
+            this.name = type.getSimpleName();
+        }
+    }
+}
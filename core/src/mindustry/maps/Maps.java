@@ -133,17 +133,19 @@ public class Maps{
             throw new RuntimeException(e);
         }
 
-        //custom
+        //custom; meta is cached in an index, so unchanged maps are not opened
+        SaveIndex index = SaveIO.indexFor(customMapDirectory);
         for(Fi file : customMapDirectory.list()){
             try{
                 if(file.extension().equalsIgnoreCase(mapExtension)){
-                    loadMap(file, true);
+                    loadMap(file, true, index);
                 }
             }catch(Exception e){
                 Log.err("Failed to load custom map file '@'!", file);
                 Log.err(e);
             }
         }
+        index.flush();
 
         //workshop
         for(Fi file : platform.getWorkshopContent(Map.class)){
@@ -461,7 +463,11 @@ public class Maps{
     }
 
     private Map loadMap(Fi file, boolean custom) throws IOException{
-        Map map = MapIO.createMap(file, custom);
+        return loadMap(file, custom, null);
+    }
+
+    private Map loadMap(Fi file, boolean custom, @Nullable SaveIndex index) throws IOException{
+        Map map = MapIO.createMap(file, custom, index);
 
         if(map.name() == null){
             throw new IOException("Map name cannot be empty! File: " + file);
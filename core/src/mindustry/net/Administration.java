@@ -11,7 +11,9 @@ import mindustry.*;
 import mindustry.gen.*;
 import mindustry.type.*;
 import mindustry.world.*;
+import mindustry.world.blocks.distribution.*;
 import mindustry.world.blocks.payloads.*;
+import mindustry.world.blocks.power.*;
 
 import static mindustry.Vars.*;
 import static mindustry.game.EventType.*;
@@ -514,6 +516,9 @@ public class Administration{
         debug = new Config("debug", "Enable debug logging.", false, () -> Log.level = debug() ? LogLevel.debug : LogLevel.info),
         snapshotInterval = new Config("snapshotInterval", "Client entity snapshot interval in ms.", 200),
         autoPause = new Config("autoPause", "Whether the game should pause when nobody is online.", false),
+        parallelPower = new Config("parallelPower", "Whether power graphs are updated in parallel across all cores.", false, () -> PowerGraph.parallel = Config.parallelPower.bool()),
+        effectBatching = new Config("effectBatching", "Whether visual effects are culled to the view of each player and sent in batches once per update.", true),
+        conveyorSegments = new Config("conveyorSegments", "Whether straight lines of conveyors are updated as one segment by the conveyor at their front.", true, () -> Conveyor.mergeSegments = Config.conveyorSegments.bool()),
         roundExtraTime = new Config("roundExtraTime", "Time before loading a new map after the gameover, in seconds.", 12),
         maxLogLength = new Config("maxLogLength", "The Maximum log file size, in bytes.", 1024 * 1024 * 5);
 
@@ -0,0 +1,272 @@
+package mindustry.net;
+
+import arc.func.*;
+import arc.graphics.*;
+import arc.util.*;
+import mindustry.entities.*;
+import mindustry.gen.*;
+import mindustry.net.Administration.*;
+
+import java.nio.*;
+import java.util.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Server-side queue for effects sent with {@link Call#effect} and {@link Call#effectReliable}.
+ * Instead of sending every effect to every connection as it happens, effects are collected for one update and then,
+ * for each connection, only the ones inside the view of its player are written into {@link Call#effectBatch} packets.
+ * Exact duplicates are dropped, and effects with the same type and color share a single header.
+ * Effects with extra data cannot be merged; they are only culled and sent right away.
+ */
+public class EffectBatcher{
+    /** Size limit of a single batch packet. Batches are compressed like snapshots, so this is above the typical UDP safe limit. */
+    public static final int maxBatchSize = 800;
+    /** Extra space around the view of a player, to account for camera movement during latency. */
+    public static final float viewMargin = tilesize * 4f;
+
+    static final int headerSize = 8, entrySize = 12, maxEntries = 1 << 16;
+
+    private int size;
+    private long[] keys = {}, order = {};
+    private float[] x = {}, y = {}, rotation = {};
+    /** Groups of entries: entries {@code [groupStart[i], groupStart[i + 1])} of {@link #kept} share the key {@code groupKey[i]}. */
+    private long[] groupKey = {};
+    private int[] groupStart = {}, kept = {};
+    private int groups;
+    private boolean enabled = true;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(maxBatchSize);
+    private @Nullable NetConnection target;
+    private final Cons2<byte[], Boolean> sendTarget = (data, reliable) -> {
+        if(reliable){
+            Call.effectBatchReliable(target, data);
+        }else{
+            Call.effectBatch(target, data);
+        }
+    };
+
+    /**
+     * Takes over an effect packet that is about to be sent to all connections.
+     * @return whether the packet was handled; if false, it should be sent normally.
+     */
+    public boolean handle(Object packet, boolean reliable){
+        if(!enabled) return false;
+
+        if(packet instanceof EffectCallPacket p){
+            return add(p.effect, p.x, p.y, p.rotation, p.color, reliable);
+        }else if(packet instanceof EffectReliableCallPacket p){
+            return add(p.effect, p.x, p.y, p.rotation, p.color, reliable);
+        }else if(packet instanceof EffectCallPacket2 p){
+            //the data may change after this call, so it can't wait for the end of the update
+            if(p.effect != null){
+                for(NetConnection con : net.getConnections()){
+                    if(visible(con, p.effect, p.x, p.y)){
+                        con.send(packet, reliable);
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /** Queues an effect until the next {@link #flush()}. */
+    public boolean add(@Nullable Effect effect, float x, float y, float rotation, @Nullable Color color, boolean reliable){
+        //these effects would be ignored by the client anyway
+        if(effect == null) return true;
+        //ids must fit into the key
+        if(effect.id > Short.MAX_VALUE) return false;
+
+        if(size >= maxEntries){
+            flush();
+        }
+
+        if(keys.length <= size){
+            int capacity = Math.max(size + 1, keys.length * 7 / 4);
+            keys = Arrays.copyOf(keys, capacity);
+            order = new long[capacity];
+            kept = new int[capacity];
+            groupKey = new long[capacity];
+            groupStart = new int[capacity + 1];
+            this.x = Arrays.copyOf(this.x, capacity);
+            this.y = Arrays.copyOf(this.y, capacity);
+            this.rotation = Arrays.copyOf(this.rotation, capacity);
+        }
+
+        keys[size] = key(effect.id, color == null ? Color.white.rgba() : color.rgba(), reliable);
+        this.x[size] = x;
+        this.y[size] = y;
+        this.rotation[size] = rotation;
+        size++;
+        return true;
+    }
+
+    /** Sends all queued effects to the connections that can see them. Called once per server update. */
+    public void flush(){
+        enabled = Config.effectBatching.bool();
+        if(size == 0) return;
+
+        prepare();
+
+        for(NetConnection con : net.getConnections()){
+            if(!con.hasConnected || con.player == null) continue;
+
+            target = con;
+            write(con, sendTarget);
+        }
+        target = null;
+        size = 0;
+    }
+
+    /** Drops all queued effects without sending them. */
+    public void clear(){
+        size = groups = 0;
+    }
+
+    /** @return the amount of queued effects. */
+    public int size(){
+        return size;
+    }
+
+    /** Sorts the queued effects into groups with the same key, dropping exact duplicates. Must be called before {@link #write}. */
+    public void prepare(){
+        //the index is stored in the low bits, so that sorting only moves primitives
+        for(int i = 0; i < size; i++){
+            order[i] = (keys[i] << 16) | i;
+        }
+        Arrays.sort(order, 0, size);
+
+        int count = 0;
+        groups = 0;
+        for(int start = 0; start < size;){
+            long key = order[start] >>> 16;
+            int end = start + 1;
+            while(end < size && (order[end] >>> 16) == key) end++;
+
+            //equal entries have equal hashes, so after sorting by hash they are next to each other
+            for(int i = start; i < end; i++){
+                int index = (int)(order[i] & 0xffff);
+                order[i] = (hash(index) << 16) | index;
+            }
+            Arrays.sort(order, start, end);
+
+            groupKey[groups] = key;
+            groupStart[groups++] = count;
+            int last = -1;
+            for(int i = start; i < end; i++){
+                int index = (int)(order[i] & 0xffff);
+                if(last == -1 || (order[i] >>> 16) != (order[i - 1] >>> 16) || !same(index, last)){
+                    kept[count++] = index;
+                    last = index;
+                }
+            }
+
+            start = end;
+        }
+        groupStart[groups] = count;
+    }
+
+    /** Writes the prepared effects that are visible to a connection and passes the finished packets to {@code out}. */
+    public void write(NetConnection con, Cons2<byte[], Boolean> out){
+        buffer.clear();
+        boolean lastReliable = false;
+
+        for(int g = 0; g < groups; g++){
+            long key = groupKey[g];
+            boolean reliable = (key & (1L << 47)) != 0;
+            Effect effect = Effect.get((int)((key >>> 32) & 0x7fff));
+
+            if(reliable != lastReliable && buffer.position() > 0){
+                send(out, lastReliable);
+            }
+            lastReliable = reliable;
+
+            int header = -1, count = 0;
+            for(int i = groupStart[g]; i < groupStart[g + 1]; i++){
+                int index = kept[i];
+                if(!visible(con, effect, x[index], y[index])) continue;
+
+                if(header != -1 && buffer.remaining() < entrySize){
+                    buffer.putShort(header + 6, (short)count);
+                    send(out, reliable);
+                    header = -1;
+                }
+
+                if(header == -1){
+                    if(buffer.remaining() < headerSize + entrySize){
+                        send(out, reliable);
+                    }
+                    header = buffer.position();
+                    count = 0;
+                    buffer.putShort((short)effect.id);
+                    buffer.putInt((int)key);
+                    buffer.putShort((short)0);
+                }
+
+                buffer.putFloat(x[index]);
+                buffer.putFloat(y[index]);
+                buffer.putFloat(rotation[index]);
+                count++;
+            }
+
+            if(header != -1){
+                buffer.putShort(header + 6, (short)count);
+            }
+        }
+
+        if(buffer.position() > 0){
+            send(out, lastReliable);
+        }
+    }
+
+    void send(Cons2<byte[], Boolean> out, boolean reliable){
+        out.get(Arrays.copyOf(buffer.array(), buffer.position()), reliable);
+        buffer.clear();
+    }
+
+    boolean same(int a, int b){
+        return x[a] == x[b] && y[a] == y[b] && rotation[a] == rotation[b];
+    }
+
+    long hash(int index){
+        long h = Float.floatToRawIntBits(x[index]) * 0x9E3779B97F4A7C15L;
+        h = (h ^ Float.floatToRawIntBits(y[index])) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ Float.floatToRawIntBits(rotation[index])) * 0x94D049BB133111EBL;
+        //47 bits, so that the index fits below it and the result stays positive
+        return h >>> 17;
+    }
+
+    static long key(int effect, int color, boolean reliable){
+        return (reliable ? 1L << 47 : 0L) | ((long)effect << 32) | (color & 0xffffffffL);
+    }
+
+    /** @return whether an effect at a position can be seen by the player of a connection. Connections that have not sent their view yet see everything. */
+    static boolean visible(NetConnection con, Effect effect, float x, float y){
+        if(con.viewWidth <= 0f || con.viewHeight <= 0f) return true;
+
+        float margin = effect.clip / 2f + viewMargin;
+        return Math.abs(x - con.viewX) <= con.viewWidth / 2f + margin && Math.abs(y - con.viewY) <= con.viewHeight / 2f + margin;
+    }
+
+    /** Plays the effects of a batch written by the server. */
+    public static void read(byte[] data, EffectListener listener){
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while(buffer.remaining() >= headerSize){
+            Effect effect = Effect.get(buffer.getShort() & 0xffff);
+            Color color = new Color(buffer.getInt());
+            int count = buffer.getShort() & 0xffff;
+
+            for(int i = 0; i < count && buffer.remaining() >= entrySize; i++){
+                float x = buffer.getFloat(), y = buffer.getFloat(), rotation = buffer.getFloat();
+                if(effect != null){
+                    listener.get(effect, x, y, rotation, color);
+                }
+            }
+        }
+    }
+
+    public interface EffectListener{
+        void get(Effect effect, float x, float y, float rotation, Color color);
+    }
+}
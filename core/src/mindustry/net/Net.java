@@ -224,6 +224,9 @@ public class Net{
     /** Send an object to all connected clients, or to the server if this is a client.*/
     public void send(Object object, boolean reliable){
         if(server){
+            //effects are culled and batched per connection at the end of the update
+            if(netServer != null && netServer.effects.handle(object, reliable)) return;
+
             for(NetConnection con : provider.getConnections()){
                 con.send(object, reliable);
             }
@@ -49,6 +49,7 @@ public class PowerAmmoType implements AmmoType{
 
             if(powerTaken > 1){
                 build.power.status -= powerTaken / build.block.consPower.capacity;
+                build.power.graph.markDirty();
                 unit.ammo += powerTaken / powerPerAmmo;
 
                 Fx.itemTransfer.at(build.x, build.y, Math.max(powerTaken / 100f, 1f), Pal.power, unit);
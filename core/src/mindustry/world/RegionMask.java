@@ -0,0 +1,71 @@
+package mindustry.world;
+
+import java.util.*;
+
+/**
+ * Marks which tiles of a map hold an entry, grouped in regions of 8x8 tiles.
+ * Every region is a single 64-bit mask with one bit per tile, so a pass over sparse per-tile data skips empty regions
+ * and visits the occupied tiles of a region in row order.
+ */
+public class RegionMask{
+    public static final int regionBits = 3, regionSize = 1 << regionBits, regionMask = regionSize - 1;
+
+    /** Size of the map in tiles. */
+    public final int width, height;
+    /** Size of the map in regions. */
+    public final int regionWidth, regionHeight;
+
+    private final long[] masks;
+    private int size;
+
+    public RegionMask(int width, int height){
+        this.width = width;
+        this.height = height;
+        this.regionWidth = (width + regionMask) >> regionBits;
+        this.regionHeight = (height + regionMask) >> regionBits;
+        this.masks = new long[regionWidth * regionHeight];
+    }
+
+    /** Marks or unmarks the tile at the given array index. */
+    public void set(int pos, boolean value){
+        int x = pos % width, y = pos / width;
+        int region = (x >> regionBits) + (y >> regionBits) * regionWidth;
+        long bit = 1L << ((x & regionMask) | ((y & regionMask) << regionBits)), last = masks[region];
+
+        masks[region] = value ? last | bit : last & ~bit;
+        if(masks[region] != last){
+            size += value ? 1 : -1;
+        }
+    }
+
+    public boolean get(int pos){
+        int x = pos % width, y = pos / width;
+        return (masks[(x >> regionBits) + (y >> regionBits) * regionWidth] & (1L << ((x & regionMask) | ((y & regionMask) << regionBits)))) != 0;
+    }
+
+    /** @return the mask of a region; bit {@code x + y * 8} is set if the tile at that offset from the corner of the region is marked. */
+    public long mask(int region){
+        return masks[region];
+    }
+
+    /** @return the array index of the tile at a bit of a region mask. */
+    public int tile(int region, int bit){
+        int x = ((region % regionWidth) << regionBits) | (bit & regionMask), y = ((region / regionWidth) << regionBits) | (bit >>> regionBits);
+        return x + y * width;
+    }
+
+    /** @return the total amount of regions. */
+    public int regions(){
+        return masks.length;
+    }
+
+    /** @return the amount of marked tiles. */
+    public int size(){
+        return size;
+    }
+
+    public void clear(){
+        Arrays.fill(masks, 0L);
+        size = 0;
+    }
+}
@@ -599,6 +599,7 @@ public class Tile implements Position, QuadTreeObject, Displayable{
     protected void changeBuild(Team team, Prov<Building> entityprov, int rotation){
         if(build != null){
             int size = build.block.size;
+            build.clearSleep();
             build.remove();
             build = null;
 
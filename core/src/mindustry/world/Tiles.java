@@ -15,6 +15,8 @@ public class Tiles implements Iterable<Tile>{
     final Tile[] array;
     final Puddle[] puddles;
     final Fire[] fires;
+    /** Tiles that currently hold a puddle or fire; used to update them in a single pass over the occupied parts of the map. */
+    public final RegionMask activePuddles, activeFires;
 
     public Tiles(int width, int height){
         this.array = new Tile[width * height];
@@ -22,6 +24,8 @@ public class Tiles implements Iterable<Tile>{
         this.height = height;
         this.puddles = new Puddle[width * height];
         this.fires = new Fire[width * height];
+        this.activePuddles = new RegionMask(width, height);
+        this.activeFires = new RegionMask(width, height);
     }
 
     public Puddle getPuddle(int pos){
@@ -30,6 +34,7 @@ public class Tiles implements Iterable<Tile>{
 
     public void setPuddle(int pos, Puddle p){
         puddles[pos] = p;
+        activePuddles.set(pos, p != null);
     }
 
     public @Nullable Fire getFire(int pos){
@@ -38,6 +43,7 @@ public class Tiles implements Iterable<Tile>{
 
     public void setFire(int pos, Fire f){
         fires[pos] = f;
+        activeFires.set(pos, f != null);
     }
 
 
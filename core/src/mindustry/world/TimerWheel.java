@@ -0,0 +1,204 @@
+package mindustry.world;
+
+import arc.util.*;
+
+/**
+ * Hierarchical timer wheel for delayed and periodic work in world ticks.
+ * Each level has 64 slots; a slot of the first level spans one tick, and every following level spans 64 times more.
+ * Timers are placed in the level that matches how far away they are and move down to finer levels as their time approaches,
+ * so scheduling, cancelling and advancing a tick cost the same regardless of how many timers are pending.
+ * Used to wake dormant buildings up instead of letting them count down every tick.
+ */
+public class TimerWheel{
+    static final int slotBits = 6, slots = 1 << slotBits, slotMask = slots - 1, levels = 4;
+    /** Maximum delay that can be placed directly; longer timers are moved again once they reach the last slot. */
+    static final long maxDelay = (1L << (slotBits * levels)) - 1;
+
+    private final Handle[] wheel = new Handle[slots * levels];
+    private final int[] levelSizes = new int[levels];
+    private long now;
+    private float accumulator;
+    private int size;
+
+    /** Runs a task once after the given amount of ticks. */
+    public Handle schedule(float delay, Runnable task){
+        Handle handle = new Handle(task);
+        schedule(handle, delay);
+        return handle;
+    }
+
+    /** Runs a task after the given amount of ticks, then again every {@code period} ticks until it is cancelled. */
+    public Handle schedule(float delay, float period, Runnable task){
+        Handle handle = new Handle(task);
+        handle.period = Math.max((int)Math.ceil(period), 1);
+        schedule(handle, delay);
+        return handle;
+    }
+
+    /** (Re)schedules a handle to run after the given amount of ticks, cancelling its previous schedule. Delays are rounded up to whole ticks. */
+    public void schedule(Handle handle, float delay){
+        cancel(handle);
+        handle.deadline = now + Math.max((long)Math.ceil(delay), 1L);
+        insert(handle);
+        size++;
+    }
+
+    /** Removes a handle from the wheel. Does nothing if it is not scheduled. */
+    public void cancel(Handle handle){
+        if(handle.wheel != this) return;
+        unlink(handle);
+        size--;
+    }
+
+    /** Advances the wheel by the given amount of ticks, running every timer that comes due. */
+    public void update(float delta){
+        accumulator += delta;
+        int ticks = (int)accumulator;
+        //anything past the integer range is dropped
+        accumulator = (accumulator - ticks) % 1f;
+        for(int i = 0; i < ticks; i++){
+            //nothing can come due in an empty wheel
+            if(size == 0){
+                now += ticks - i;
+                break;
+            }
+
+            tick();
+        }
+    }
+
+    /** Removes all timers without running them. */
+    public void clear(){
+        for(int i = 0; i < wheel.length; i++){
+            Handle handle = wheel[i];
+            while(handle != null){
+                Handle next = handle.next;
+                handle.wheel = null;
+                handle.prev = handle.next = null;
+                handle = next;
+            }
+            wheel[i] = null;
+        }
+        for(int i = 0; i < levels; i++){
+            levelSizes[i] = 0;
+        }
+        size = 0;
+        now = 0;
+        accumulator = 0f;
+    }
+
+    /** @return the amount of pending timers. */
+    public int size(){
+        return size;
+    }
+
+    /** @return the amount of pending timers in a level of the wheel; level 0 holds the timers that are due within the current 64 ticks. */
+    public int levelSize(int level){
+        return levelSizes[level];
+    }
+
+    /** @return the amount of levels in the wheel. */
+    public int levels(){
+        return levels;
+    }
+
+    /** @return the amount of ticks this wheel has advanced since it was last cleared. */
+    public long ticks(){
+        return now;
+    }
+
+    void tick(){
+        now++;
+
+        //when a level wraps around, the next slot of the level above it is spread over the finer levels
+        for(int level = 1; level < levels && ((now >>> (slotBits * (level - 1))) & slotMask) == 0; level++){
+            cascade(level, (int)((now >>> (slotBits * level)) & slotMask));
+        }
+
+        int index = (int)(now & slotMask);
+        Handle handle;
+        while((handle = wheel[index]) != null){
+            unlink(handle);
+
+            if(handle.deadline > now){
+                insert(handle);
+                continue;
+            }
+
+            size--;
+            if(handle.period > 0){
+                //reschedule before running, so the task may cancel itself
+                handle.deadline = now + handle.period;
+                insert(handle);
+                size++;
+            }
+            handle.task.run();
+        }
+    }
+
+    void cascade(int level, int slot){
+        int index = level * slots + slot;
+        Handle handle;
+        while((handle = wheel[index]) != null){
+            unlink(handle);
+            insert(handle);
+        }
+    }
+
+    void insert(Handle handle){
+        long deadline = Math.min(handle.deadline, now + maxDelay);
+        int level = 0;
+        while(level < levels - 1 && (deadline >>> (slotBits * (level + 1))) != (now >>> (slotBits * (level + 1)))){
+            level++;
+        }
+
+        int index = level * slots + (int)((deadline >>> (slotBits * level)) & slotMask);
+        Handle head = wheel[index];
+        handle.next = head;
+        handle.prev = null;
+        if(head != null) head.prev = handle;
+        wheel[index] = handle;
+        handle.wheel = this;
+        handle.index = index;
+        levelSizes[level]++;
+    }
+
+    void unlink(Handle handle){
+        if(handle.prev != null){
+            handle.prev.next = handle.next;
+        }else{
+            wheel[handle.index] = handle.next;
+        }
+        if(handle.next != null) handle.next.prev = handle.prev;
+
+        levelSizes[handle.index / slots]--;
+        handle.prev = handle.next = null;
+        handle.wheel = null;
+    }
+
+    /** A task in the wheel. Handles can be kept and rescheduled to avoid allocating a new timer each time. */
+    public static class Handle{
+        public final Runnable task;
+        /** Ticks between runs of a periodic timer; 0 for timers that only run once. */
+        public int period;
+
+        @Nullable TimerWheel wheel;
+        @Nullable Handle prev, next;
+        long deadline;
+        int index;
+
+        public Handle(Runnable task){
+            this.task = task;
+        }
+
+        /** @return whether this timer is waiting to run. */
+        public boolean scheduled(){
+            return wheel != null;
+        }
+
+        /** Stops this timer from running. */
+        public void cancel(){
+            if(wheel != null) wheel.cancel(this);
+        }
+    }
+}
@@ -121,6 +121,11 @@ public class ContinuousTurret extends Turret{
             //continuous turrets don't have a concept of reload, they are always firing when possible
         }
 
+        @Override
+        protected boolean reloaded(){
+            return bullets.isEmpty();
+        }
+
         @Override
         protected void updateShooting(){
             if(bullets.any()){
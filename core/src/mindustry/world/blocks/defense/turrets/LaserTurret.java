@@ -114,6 +114,11 @@ public class LaserTurret extends PowerTurret{
             //updated in updateTile() depending on coolant
         }
 
+        @Override
+        protected boolean reloaded(){
+            return bullets.isEmpty() && reloadCounter <= 0f;
+        }
+
         @Override
         protected void updateShooting(){
             if(bullets.any()){
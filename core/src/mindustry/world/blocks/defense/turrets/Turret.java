@@ -33,9 +33,13 @@ public class Turret extends ReloadTurret{
     //after being logic-controlled and this amount of time passes, the turret will resume normal AI
     public final static float logicControlCooldown = 60 * 2;
 
-    public final int timerTarget = timers++;
+    public final int timerTarget = timers++, timerRetarget = timers++;
     /** Ticks between attempt at finding a target. */
     public float targetInterval = 20;
+    /** Ticks between attempts at finding a better target while the current one is still valid. */
+    public float retargetInterval = 60;
+    /** If true, turrets that are reloaded and have no target sleep until their next target search, instead of updating every tick. */
+    public boolean sleepWhenIdle = true;
 
     /** Maximum ammo units stored. */
     public int maxAmmo = 30;
@@ -269,6 +273,7 @@ public class Turret extends ReloadTurret{
                 targetPos.set(World.unconv((float)p1), World.unconv((float)p2));
                 logicControlTime = logicControlCooldown;
                 logicShooting = !Mathf.zero(p3);
+                noSleep();
             }
 
             super.control(type, p1, p2, p3, p4);
@@ -279,6 +284,7 @@ public class Turret extends ReloadTurret{
             if(type == LAccess.shootp && (unit == null || !unit.isPlayer())){
                 logicControlTime = logicControlCooldown;
                 logicShooting = !Mathf.zero(p2);
+                noSleep();
 
                 if(p1 instanceof Posc pos){
                     targetPosition(pos);
@@ -313,6 +319,8 @@ public class Turret extends ReloadTurret{
 
         @Override
         public Unit unit(){
+            //players take control through this unit, so the turret has to be updating
+            noSleep();
             //make sure stats are correct
             unit.tile(this);
             unit.team(team);
@@ -323,6 +331,17 @@ public class Turret extends ReloadTurret{
             return logicControlTime > 0;
         }
 
+        /** @return whether this turret has nothing to shoot, reload or animate until it finds a target. */
+        public boolean idle(){
+            return target == null && !alwaysShooting && !wasShooting && !isControlled() && !logicControlled() && queuedBullets == 0 &&
+                reloaded() && heat <= 0f && curRecoil <= 0f && charge <= 0f && warmupHold <= 0f && shootWarmup < 0.001f;
+        }
+
+        /** @return whether this turret could fire right away, without waiting for a reload or its previous shot. */
+        protected boolean reloaded(){
+            return reloadCounter >= reload;
+        }
+
         public boolean isActive(){
             return (target != null || wasShooting) && enabled;
         }
@@ -404,7 +423,8 @@ public class Turret extends ReloadTurret{
             if(hasAmmo()){
                 if(Float.isNaN(reloadCounter)) reloadCounter = 0;
 
-                if(timer(timerTarget, targetInterval)){
+                //turrets locked onto a valid target only look for a better one every retargetInterval
+                if(timer(timerTarget, targetInterval) && (target == null || timer(timerRetarget, retargetInterval))){
                     findTarget();
                 }
 
@@ -448,6 +468,13 @@ public class Turret extends ReloadTurret{
             if(coolant != null){
                 updateCooling();
             }
+
+            if(sleepWhenIdle && idle()){
+                shootWarmup = 0f;
+                //search for a target as soon as the turret wakes up
+                timer.reset(timerTarget, targetInterval);
+                sleepFor(targetInterval);
+            }
         }
 
         @Override
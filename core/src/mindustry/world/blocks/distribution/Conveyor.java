@@ -26,6 +26,12 @@ public class Conveyor extends Block implements Autotiler{
     private static final float itemSpace = 0.4f;
     private static final int capacity = 3;
 
+    /**
+     * If true, straight lines of conveyors of the same type are updated as one segment by the conveyor at their front.
+     * Segments always move their conveyors from back to front, which matches separate conveyors only for lines built from back to front.
+     */
+    public static boolean mergeSegments = true;
+
     public @Load(value = "@-#1-#2", lengths = {7, 4}) TextureRegion[][] regions;
 
     public float speed = 0f;
@@ -136,6 +142,15 @@ public class Conveyor extends Block implements Autotiler{
         public int blendsclx = 1, blendscly = 1;
 
         public float clogHeat = 0f;
+        //whether a conveyor feeding into this one is asleep until this one moves
+        public boolean sleepingFeeders;
+
+        //front of the segment that updates this conveyor, or null if this conveyor updates itself
+        public @Nullable ConveyorBuild head;
+        //conveyors behind this one that it updates, from front to back; only allocated for segment heads
+        public @Nullable Seq<ConveyorBuild> segment;
+        //state.updateId of the last update of this conveyor as a head, and of the update its segment was split in
+        long lastUpdate = -1, splitUpdate = -1;
 
         @Override
         public void draw(){
@@ -218,6 +233,26 @@ public class Conveyor extends Block implements Autotiler{
             next = front();
             nextc = next instanceof ConveyorBuild && next.team == team ? (ConveyorBuild)next : null;
             aligned = nextc != null && rotation == next.rotation;
+
+            //the conveyor in front may have changed, so clogged lines and segments need to re-check
+            splitSegment();
+            noSleep();
+        }
+
+        @Override
+        public void onRemoved(){
+            super.onRemoved();
+            splitSegment();
+        }
+
+        @Override
+        public void noSleep(){
+            //conveyors in a segment are updated by its head, which needs to be awake instead
+            if(head != null){
+                head.noSleep();
+            }else{
+                super.noSleep();
+            }
         }
 
         @Override
@@ -249,22 +284,95 @@ public class Conveyor extends Block implements Autotiler{
 
         @Override
         public void updateTile(){
+            //moved by the head of the segment, this conveyor only needs to fall asleep
+            if(head != null){
+                sleep();
+                return;
+            }
+
+            //this conveyor was already moved by its old head during this update
+            if(splitUpdate == state.updateId){
+                splitUpdate = -1;
+                return;
+            }
+
+            ConveyorBuild root = mergeTarget();
+
+            //the head in front has not been updated yet, so it can move this conveyor right away
+            if(root != null && root.lastUpdate != state.updateId){
+                merge(root);
+                sleep();
+                return;
+            }
+
+            if(segment != null && segment.any() && !segmentValid()){
+                splitSegment();
+            }
+
+            lastUpdate = state.updateId;
+            boolean changed = false, empty = true, clogged = true;
+
+            //always move back to front; separate conveyors of a line built from front to back would update front to back instead
+            for(int i = segment == null ? -1 : segment.size - 1; i >= 0; i--){
+                ConveyorBuild other = segment.items[i];
+
+                if(other.moveItems()){
+                    other.wakeFeeders();
+                    changed = true;
+                }
+                empty &= other.len == 0;
+                clogged &= other.len == 0 || other.clogHeat >= 1f;
+
+                if(!headless && other.isSleeping() && block.ambientSound != Sounds.none && other.shouldAmbientSound()){
+                    control.sound.loop(block.ambientSound, other, block.ambientSoundVolume * other.ambientVolume());
+                }
+            }
+
+            if(moveItems()){
+                wakeFeeders();
+                changed = true;
+            }
+
+            //skip updates if possible
+            if(len == 0 && empty){
+                sleep();
+            }else if(changed){
+                noSleep();
+            }else if(clogged && clogHeat >= 1f && nextc != null){
+                //fully backed up behind another conveyor: nothing can change until it moves, and it wakes this one up when it does
+                nextc.sleepingFeeders = true;
+                sleep();
+            }else{
+                noSleep();
+            }
+
+            //the head in front was already updated, so it can only take over from the next update on
+            if(root != null && !root.isSleeping()){
+                merge(root);
+            }
+        }
+
+        /**
+         * Moves the items on this conveyor for one update and passes the ones at the end to the next building.
+         * @return whether any item moved or was passed on.
+         */
+        public boolean moveItems(){
             minitem = 1f;
             mid = 0;
 
-            //skip updates if possible
             if(len == 0){
                 clogHeat = 0f;
-                sleep();
-                return;
+                return false;
             }
 
             float nextMax = aligned ? 1f - Math.max(itemSpace - nextc.minitem, 0) : 1f;
             float moved = speed * edelta();
+            boolean changed = false;
 
             for(int i = len - 1; i >= 0; i--){
                 float nextpos = (i == len - 1 ? 100f : ys[i + 1]) - itemSpace;
                 float maxmove = Mathf.clamp(nextpos - ys[i], 0, moved);
+                float lastx = xs[i], lasty = ys[i];
 
                 ys[i] += maxmove;
 
@@ -272,6 +380,8 @@ public class Conveyor extends Block implements Autotiler{
                 if(ys[i] > 0.5 && i > 0) mid = i - 1;
                 xs[i] = Mathf.approach(xs[i], 0, moved*2);
 
+                if(xs[i] != lastx || ys[i] != lasty) changed = true;
+
                 if(ys[i] >= 1f && pass(ids[i])){
                     //align X position if passing forwards
                     if(aligned){
@@ -280,6 +390,7 @@ public class Conveyor extends Block implements Autotiler{
                     //remove last item
                     items.remove(ids[i], len - i);
                     len = Math.min(i, len);
+                    changed = true;
                 }else if(ys[i] < minitem){
                     minitem = ys[i];
                 }
@@ -291,7 +402,79 @@ public class Conveyor extends Block implements Autotiler{
                 clogHeat = 0f;
             }
 
-            noSleep();
+            return changed;
+        }
+
+        /** @return whether this conveyor can be updated by the head of a segment, instead of updating itself. */
+        public boolean canMerge(){
+            return mergeSegments && enabled && timeScale == 1f && power == null && isValid();
+        }
+
+        /** @return the head of the segment in front that this conveyor can join, or null if there is none. */
+        public @Nullable ConveyorBuild mergeTarget(){
+            if(nextc == null || !aligned || nextc.block != block || !canMerge()) return null;
+
+            ConveyorBuild root = nextc.head == null ? nextc : nextc.head;
+            //a segment can only grow at its back
+            return (root.segment == null || root.segment.isEmpty() ? root : root.segment.peek()) == nextc ? root : null;
+        }
+
+        /** Hands this conveyor and its own segment over to the head of the segment in front. */
+        public void merge(ConveyorBuild root){
+            if(root.segment == null) root.segment = new Seq<>(true, 8, ConveyorBuild.class);
+            root.segment.add(this);
+            if(segment != null){
+                root.segment.addAll(segment);
+                for(int i = 0; i < segment.size; i++){
+                    segment.items[i].head = root;
+                }
+                //members do not need their own list; it is allocated again if this conveyor becomes a head
+                segment = null;
+            }
+            head = root;
+            root.noSleep();
+        }
+
+        /** @return whether every conveyor in the segment can still be updated by this one. */
+        boolean segmentValid(){
+            if(!mergeSegments) return false;
+            if(segment == null) return true;
+
+            for(int i = 0; i < segment.size; i++){
+                ConveyorBuild other = segment.items[i];
+                //boosted, disabled or captured conveyors need to update on their own
+                if(!other.enabled || other.timeScale != 1f || other.team != team) return false;
+            }
+            return true;
+        }
+
+        /** Splits the segment this conveyor is part of, so that all of its conveyors update on their own again. */
+        public void splitSegment(){
+            ConveyorBuild root = head == null ? this : head;
+            if(root.segment == null || root.segment.isEmpty()) return;
+
+            for(int i = 0; i < root.segment.size; i++){
+                ConveyorBuild other = root.segment.items[i];
+                other.head = null;
+                //conveyors that the head already moved during this update must not move again when they wake up
+                other.splitUpdate = root.lastUpdate;
+                other.noSleep();
+            }
+            root.segment.clear();
+            root.splitUpdate = root.lastUpdate;
+            root.noSleep();
+        }
+
+        /** Wakes up clogged conveyors that went to sleep waiting for this one to move. */
+        public void wakeFeeders(){
+            if(!sleepingFeeders) return;
+            sleepingFeeders = false;
+
+            for(var other : proximity){
+                if(other instanceof ConveyorBuild conv && conv.nextc == this){
+                    conv.noSleep();
+                }
+            }
         }
 
         public boolean pass(Item item){
@@ -318,6 +501,7 @@ public class Conveyor extends Block implements Autotiler{
             }
 
             items.remove(item, removed);
+            if(removed > 0) wakeFeeders();
             return removed;
         }
 
@@ -20,6 +20,8 @@ public class HeatProducer extends GenericCrafter{
         rotate = true;
         canOverdrive = false;
         drawArrow = true;
+        //heat output decays every tick
+        sleepWhenIdle = false;
     }
 
     @Override
@@ -235,6 +235,8 @@ public class LogicBlock extends Block{
         public boolean checkedDuplicates = false;
         //dynamic only for privileged processors
         public int ipt = instructionsPerTick;
+        /** Fraction of instructions this processor is allowed to run, set by server operators. Not saved. */
+        public float throttle = 1f;
 
         /** Block of code to run after load. */
         public @Nullable Runnable loadBlock;
@@ -506,7 +508,7 @@ public class LogicBlock extends Block{
             if(state.rules.disableWorldProcessors && privileged) return;
 
             if(enabled && executor.initialized()){
-                accumulator += edelta() * ipt;
+                accumulator += edelta() * ipt * throttle;
 
                 if(accumulator > maxInstructionScale * ipt) accumulator = maxInstructionScale * ipt;
 
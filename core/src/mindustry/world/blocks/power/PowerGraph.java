@@ -3,14 +3,29 @@ package mindustry.world.blocks.power;
 import arc.math.*;
 import arc.struct.*;
 import arc.util.*;
+import mindustry.*;
 import mindustry.gen.*;
 import mindustry.world.consumers.*;
 
+import java.util.concurrent.*;
+
 public class PowerGraph{
     private static final Queue<Building> queue = new Queue<>();
     private static final Seq<Building> outArray1 = new Seq<>();
     private static final Seq<Building> outArray2 = new Seq<>();
     private static final IntSet closedSet = new IntSet();
+    private static final Seq<Building> branchRoots = new Seq<>(false, 8, Building.class);
+    private static final IntIntMap branchIds = new IntIntMap();
+    private static Branch[] searches = new Branch[4];
+    private static final Seq<PowerGraph> parallelGraphs = new Seq<>(false, 64, PowerGraph.class);
+    private static final Seq<Future<?>> parallelTasks = new Seq<>();
+    /** Minimum amount of graphs per parallel task. Below this, splitting the work is not worth it. */
+    private static final int minParallelGraphs = 16;
+    /** Balances graphs for {@link #updateParallel()}. Separate from {@link Vars#mainExecutor}, so the tick never waits behind fog, pathfinding or IO tasks. */
+    private static final ExecutorService executor = Threads.executor("Power Graphs", OS.cores);
+
+    /** If true, graphs are updated in a separate parallel phase through {@link #updateParallel()} instead of by their updater entities. */
+    public static boolean parallel = false;
 
     //do not modify any of these unless you know what you're doing!
     public final Seq<Building> producers = new Seq<>(false, 16, Building.class);
@@ -25,6 +40,13 @@ public class PowerGraph{
     //diodes workaround for correct energy production info
     private float energyDelta = 0f;
 
+    //aggregates of the rates members report through refresh(); only recomputed when something changes
+    private float producedRate, neededRate, batteryStored, batteryTotal;
+    private float lastCoverage = Float.NaN, lastSuppliedRate = Float.NaN;
+    private boolean dirty = true, cheating;
+    //consumers that received more power; dormant ones are woken up on the main thread after the update
+    private final Seq<Building> waking = new Seq<>(false, 8, Building.class);
+
     private final int graphID;
     private static int lastGraphID;
 
@@ -76,6 +98,7 @@ public class PowerGraph{
     }
 
     public void transferPower(float amount){
+        dirty = true;
         if(amount > 0){
             chargeBatteries(amount);
         }else{
@@ -186,55 +209,227 @@ public class PowerGraph{
     }
 
     public void distributePower(float needed, float produced, boolean charged){
+        var items = consumers.items;
+        for(int i = 0; i < consumers.size; i++){
+            refresh(items[i]);
+        }
+        distributeCached(coverage(needed, produced, charged), needed, produced);
+        wakeConsumers();
+    }
+
+    /** Marks this graph as changed, forcing the next update to recompute its totals. Call after modifying the power status of a member. */
+    public void markDirty(){
+        dirty = true;
+    }
+
+    /**
+     * Reads the power production and request of a building into its power module. Rates do not include {@link Time#delta}.
+     * Buildings call this after every update, and graphs when a building joins them, so graph updates never poll their members.
+     * @return whether any value differs from the previous call.
+     */
+    public static boolean refresh(Building build){
+        var block = build.block;
+        var cons = block.consPower;
+        float production = 0f, request = 0f;
+        boolean valid = false;
+
+        if(block.outputsPower && block.consumesPower && cons != null && cons.buffered){
+            //batteries only stop counting when they are disabled
+            valid = build.enabled;
+        }else{
+            if(block.outputsPower){
+                production = build.getPowerProduction() * build.timeScale();
+            }
+
+            if(block.consumesPower && cons != null){
+                valid = otherConsumersAreValid(build, cons);
+                //buffered consumers are charged even when their other consumers are invalid; the others only need their usage for an estimate
+                request = (valid || cons.buffered ? cons.requestedPower(build) : cons.usage) * build.timeScale();
+            }
+        }
+
+        var power = build.power;
+        if(production != power.production || request != power.request || valid != power.valid){
+            power.production = production;
+            power.request = request;
+            power.valid = valid;
+            return true;
+        }
+        return false;
+    }
+
+    /** Recomputes aggregate rates and battery totals from the rates reported by the members. */
+    private void updateAggregates(){
+        producedRate = 0f;
+        var producerItems = producers.items;
+        for(int i = 0; i < producers.size; i++){
+            producedRate += producerItems[i].power.production;
+        }
+
+        neededRate = 0f;
+        var consumerItems = consumers.items;
+        for(int i = 0; i < consumers.size; i++){
+            var power = consumerItems[i].power;
+            if(power.valid){
+                neededRate += power.request;
+            }
+        }
+
+        batteryStored = batteryTotal = 0f;
+        var items = batteries.items;
+        for(int i = 0; i < batteries.size; i++){
+            var battery = items[i];
+            float capacity = capacity(battery);
+            batteryStored += battery.power.status * capacity;
+            batteryTotal += capacity;
+        }
+    }
+
+    /** @return the capacity of a battery as last reported, which is zero while it is disabled. */
+    private static float capacity(Building battery){
+        return battery.power.valid ? battery.block.consPower.capacity : 0f;
+    }
+
+    /** Drains all batteries by the same fraction. Battery totals are kept up to date without a separate pass. */
+    private float useBatteriesCached(float needed){
+        if(Mathf.equal(batteryStored, 0f)) return 0f;
+
+        float used = Math.min(batteryStored, needed);
+        float consumedPowerPercentage = Math.min(1.0f, needed / batteryStored);
+        float stored = 0f;
+        var items = batteries.items;
+        for(int i = 0; i < batteries.size; i++){
+            var battery = items[i];
+            float capacity = capacity(battery);
+            if(capacity > 0f){
+                battery.power.status *= (1f-consumedPowerPercentage);
+                stored += battery.power.status * capacity;
+            }
+        }
+        batteryStored = stored;
+        return used;
+    }
+
+    /** Fills the missing charge of all batteries by the same fraction. Does nothing when all batteries are full. */
+    private float chargeBatteriesCached(float excess){
+        float capacity = batteryTotal - batteryStored;
+        if(Mathf.equal(capacity, 0f)) return 0f;
+        //how much of the missing in each battery % is charged
+        float chargedPercent = Math.min(excess/capacity, 1f);
+
+        float stored = 0f;
+        var items = batteries.items;
+        for(int i = 0; i < batteries.size; i++){
+            var battery = items[i];
+            float batteryCapacity = capacity(battery);
+            if(batteryCapacity > 0f){
+                battery.power.status += (1f - battery.power.status) * chargedPercent;
+                stored += battery.power.status * batteryCapacity;
+            }
+        }
+        batteryStored = stored;
+        return Math.min(excess, capacity);
+    }
+
+    private float coverage(float needed, float produced, boolean charged){
+        return Mathf.zero(needed) && Mathf.zero(produced) && !charged && Mathf.zero(lastPowerStored) ? 0f : Mathf.zero(needed) ? 1f : Math.min(1, produced / needed);
+    }
+
+    private void distributeCached(float coverage, float needed, float produced){
         //distribute even if not needed. this is because some might be requiring power but not using it; it updates consumers
-        float coverage = Mathf.zero(needed) && Mathf.zero(produced) && !charged && Mathf.zero(lastPowerStored) ? 0f : Mathf.zero(needed) ? 1f : Math.min(1, produced / needed);
         var items = consumers.items;
         for(int i = 0; i < consumers.size; i++){
             var consumer = items[i];
-            //TODO how would it even be null
             var cons = consumer.block.consPower;
+            var power = consumer.power;
             if(cons.buffered){
                 if(!Mathf.zero(cons.capacity)){
                     // Add an equal percentage of power to all buffers, based on the global power coverage in this graph
-                    float maximumRate = cons.requestedPower(consumer) * coverage * consumer.delta();
-                    consumer.power.status = Mathf.clamp(consumer.power.status + maximumRate / cons.capacity);
+                    float maximumRate = power.request * coverage * Time.delta;
+                    power.status = Mathf.clamp(power.status + maximumRate / cons.capacity);
                 }
             }else{
+                float last = power.status;
+
                 //valid consumers get power as usual
-                if(otherConsumersAreValid(consumer, cons)){
-                    consumer.power.status = coverage;
+                if(power.valid){
+                    power.status = coverage;
                 }else{ //invalid consumers get an estimate, if they were to activate
-                    consumer.power.status = Math.min(1, produced / (needed + cons.usage * consumer.delta()));
+                    power.status = Math.min(1, produced / (needed + power.request * Time.delta));
                     //just in case
-                    if(Float.isNaN(consumer.power.status)){
-                        consumer.power.status = 0f;
+                    if(Float.isNaN(power.status)){
+                        power.status = 0f;
                     }
                 }
+
+                //dormant buildings may have been waiting for power
+                if(power.status > last){
+                    waking.add(consumer);
+                }
             }
         }
     }
 
+    /** Wakes up the dormant consumers that received more power in the last update. Adds them to entity groups, so it must run on the main thread. */
+    private void wakeConsumers(){
+        if(waking.isEmpty()) return;
+
+        var items = waking.items;
+        for(int i = 0; i < waking.size; i++){
+            if(items[i].isSleeping()){
+                items[i].noSleep();
+            }
+        }
+        waking.clear();
+    }
+
     public void update(){
-        if(!consumers.isEmpty() && consumers.first().cheating()){
+        prepare();
+        balance();
+        wakeConsumers();
+    }
+
+    /** Reads the part of the graph state that needs building code. Runs on the main thread before {@link #balance()}. */
+    private void prepare(){
+        cheating = !consumers.isEmpty() && consumers.first().cheating();
+    }
+
+    /**
+     * Balances production, consumption and batteries, and distributes power to consumers.
+     * This only reads and writes fields of the graph, of the power modules of its members and of their blocks' power consumers.
+     * It must never call building code, so that graphs can be balanced on several threads at once;
+     * anything that depends on building code is reported through {@link #refresh(Building)} or read in {@link #prepare()}.
+     */
+    private void balance(){
+        if(cheating){
             //when cheating, just set status to 1
-            for(Building tile : consumers){
-                tile.power.status = 1f;
+            var items = consumers.items;
+            for(int i = 0; i < consumers.size; i++){
+                items[i].power.status = 1f;
             }
 
             lastPowerNeeded = lastPowerProduced = 1f;
+            dirty = true;
             return;
         }
 
-        float powerNeeded = getPowerNeeded();
-        float powerProduced = getPowerProduced();
+        //only recompute aggregates when a member reported a change, or the graph itself changed
+        boolean changed = dirty;
+        if(changed){
+            updateAggregates();
+            dirty = false;
+        }
+
+        float powerNeeded = neededRate * Time.delta;
+        float powerProduced = producedRate * Time.delta;
 
         lastPowerNeeded = powerNeeded;
         lastPowerProduced = powerProduced;
 
         lastScaledPowerIn = (powerProduced + energyDelta) / Time.delta;
         lastScaledPowerOut = powerNeeded / Time.delta;
-        lastCapacity = getTotalBatteryCapacity();
-        lastPowerStored = getBatteryStored();
+        lastCapacity = batteryTotal;
+        lastPowerStored = batteryStored;
 
         powerBalance.add((lastPowerProduced - lastPowerNeeded + energyDelta) / Time.delta);
         energyDelta = 0f;
@@ -242,18 +437,76 @@ public class PowerGraph{
         if(!(consumers.size == 0 && producers.size == 0 && batteries.size == 0)){
             boolean charged = false;
 
+            //batteries are only touched when they are not already full (or empty), so a static grid skips them entirely
             if(!Mathf.equal(powerNeeded, powerProduced)){
                 if(powerNeeded > powerProduced){
-                    float powerBatteryUsed = useBatteries(powerNeeded - powerProduced);
+                    float powerBatteryUsed = useBatteriesCached(powerNeeded - powerProduced);
                     powerProduced += powerBatteryUsed;
                     lastPowerProduced += powerBatteryUsed;
                 }else if(powerProduced > powerNeeded){
                     charged = true;
-                    powerProduced -= chargeBatteries(powerProduced - powerNeeded);
+                    powerProduced -= chargeBatteriesCached(powerProduced - powerNeeded);
+                }
+            }
+
+            float coverage = coverage(powerNeeded, powerProduced, charged);
+            float suppliedRate = powerProduced / Time.delta;
+
+            //consumer statuses only depend on coverage and the supplied rate when nothing else changed
+            if(changed || coverage != lastCoverage || !Mathf.equal(suppliedRate, lastSuppliedRate)){
+                distributeCached(coverage, powerNeeded, powerProduced);
+                lastCoverage = coverage;
+                lastSuppliedRate = suppliedRate;
+            }
+        }
+    }
+
+    /**
+     * Updates every active graph, balancing them in parallel on a dedicated executor. Graphs never share buildings, so they can be balanced independently.
+     * Only {@link #balance()} runs on the executor: it works on plain fields and never calls building or consumer code, including code of mods.
+     * Reading building state and waking up dormant consumers happens on the main thread, before and after the parallel part.
+     * Called once per tick before {@link Groups#update()} when {@link #parallel} is enabled; updater entities skip their own update in that case.
+     */
+    public static void updateParallel(){
+        parallelGraphs.clear();
+        Groups.powerGraph.each(g -> parallelGraphs.add(g.graph()));
+
+        int chunks = Math.min(OS.cores, parallelGraphs.size / minParallelGraphs);
+        if(chunks <= 1){
+            for(var graph : parallelGraphs){
+                graph.update();
+            }
+            return;
+        }
+
+        for(var graph : parallelGraphs){
+            graph.prepare();
+        }
+
+        parallelTasks.clear();
+        int chunkSize = Mathf.ceil(parallelGraphs.size / (float)chunks);
+        for(int i = 0; i < parallelGraphs.size; i += chunkSize){
+            int from = i, to = Math.min(i + chunkSize, parallelGraphs.size);
+            parallelTasks.add(executor.submit(() -> {
+                var items = parallelGraphs.items;
+                for(int j = from; j < to; j++){
+                    items[j].balance();
                 }
+            }));
+        }
+
+        for(var task : parallelTasks){
+            try{
+                task.get();
+            }catch(InterruptedException e){
+                throw new RuntimeException(e);
+            }catch(ExecutionException e){
+                throw new RuntimeException(e.getCause());
             }
+        }
 
-            distributePower(powerNeeded, powerProduced, charged);
+        for(var graph : parallelGraphs){
+            graph.wakeConsumers();
         }
     }
 
@@ -284,20 +537,31 @@ public class PowerGraph{
                 if(build.power.graph.entity != null) build.power.graph.entity.remove();
             }
 
-            build.power.graph = this;
-            build.power.init = true;
+            var power = build.power;
+            power.graph = this;
+            power.init = true;
+            power.producerIndex = power.consumerIndex = power.batteryIndex = -1;
+            dirty = true;
+            power.allIndex = all.size;
             all.add(build);
 
             if(build.block.outputsPower && build.block.consumesPower && !build.block.consPower.buffered){
+                power.producerIndex = producers.size;
                 producers.add(build);
+                power.consumerIndex = consumers.size;
                 consumers.add(build);
             }else if(build.block.outputsPower && build.block.consumesPower){
+                power.batteryIndex = batteries.size;
                 batteries.add(build);
             }else if(build.block.outputsPower){
+                power.producerIndex = producers.size;
                 producers.add(build);
             }else if(build.block.consumesPower && build.block.consPower != null){
+                power.consumerIndex = consumers.size;
                 consumers.add(build);
             }
+
+            refresh(build);
         }
     }
 
@@ -306,6 +570,7 @@ public class PowerGraph{
     }
 
     public void clear(){
+        dirty = true;
         all.clear();
         producers.clear();
         consumers.clear();
@@ -330,51 +595,147 @@ public class PowerGraph{
         }
     }
 
-    /** Used for unit tests only. */
+    /** Removes a building from the lists of this graph without reassigning its graph. Takes constant time, but does not keep the order of the lists. */
     public void removeList(Building build){
-        all.remove(build);
-        producers.remove(build);
-        consumers.remove(build);
-        batteries.remove(build);
-    }
-
-    /** Note that this does not actually remove the building from the graph;
-     * it creates *new* graphs that contain the correct buildings. Doing this invalidates the graph. */
+        dirty = true;
+        var power = build.power;
+        int moved;
+
+        if((moved = removeAt(all, build, power.allIndex)) != -1) all.items[moved].power.allIndex = moved;
+        if((moved = removeAt(producers, build, power.producerIndex)) != -1) producers.items[moved].power.producerIndex = moved;
+        if((moved = removeAt(consumers, build, power.consumerIndex)) != -1) consumers.items[moved].power.consumerIndex = moved;
+        if((moved = removeAt(batteries, build, power.batteryIndex)) != -1) batteries.items[moved].power.batteryIndex = moved;
+
+        power.allIndex = power.producerIndex = power.consumerIndex = power.batteryIndex = -1;
+    }
+
+    /**
+     * Removes a building from a member list by moving the last member into its slot.
+     * @return the slot if another member was moved into it, or -1 otherwise.
+     */
+    private static int removeAt(Seq<Building> list, Building build, int index){
+        if(index < 0) return -1;
+        //the stored index is stale if the list was changed without going through this graph
+        if(index >= list.size || list.items[index] != build){
+            index = list.indexOf(build, true);
+            if(index == -1) return -1;
+        }
+        list.remove(index);
+        return index < list.size ? index : -1;
+    }
+
+    /**
+     * Removes a building from this graph. If this splits the graph, every branch except one is moved into a new graph.
+     * Branches are found with an interleaved BFS from each neighbor of the removed building, which stops as soon as at most one branch is still unexplored.
+     * That branch stays in this graph, so the cost is proportional to the size of the moved branches. Branches are expanded in turns,
+     * which usually leaves the largest one unexplored, but this is not guaranteed when searches merge.
+     * Removing a building with a single connection (or one that is part of a loop) does not need a traversal of the whole graph.
+     * The removed building is assigned a new, empty graph of its own.
+     */
     public void remove(Building tile){
-
-        //go through all the connections of this tile
+        branchRoots.clear();
         for(Building other : tile.getPowerConnections(outArray1)){
-            //a graph has already been assigned to this tile from a previous call, skip it
-            if(other.power.graph != this) continue;
+            if(other.power.graph == this && !branchRoots.contains(other, true)){
+                branchRoots.add(other);
+            }
+        }
 
-            //create graph for this branch
-            PowerGraph graph = new PowerGraph();
-            graph.checkAdd();
-            graph.add(other);
-            //add to queue for BFS
-            queue.clear();
-            queue.addLast(other);
-            while(queue.size > 0){
-                //get child from queue
-                Building child = queue.removeFirst();
-                //add it to the new branch graph
-                graph.add(child);
-                //go through connections
+        removeList(tile);
+        tile.power.graph = null;
+        new PowerGraph().add(tile);
+
+        if(branchRoots.size <= 1){
+            //a building with one connection can never split a graph
+            if(all.isEmpty() && entity != null) entity.remove();
+            return;
+        }
+
+        int branches = branchRoots.size;
+        if(searches.length < branches){
+            Branch[] grown = new Branch[branches];
+            System.arraycopy(searches, 0, grown, 0, searches.length);
+            searches = grown;
+        }
+        branchIds.clear();
+
+        for(int i = 0; i < branches; i++){
+            Building root = branchRoots.get(i);
+            if(searches[i] == null) searches[i] = new Branch();
+            searches[i].reset(i);
+            searches[i].queue.addLast(root);
+            searches[i].members.add(root);
+            branchIds.put(root.pos(), i);
+        }
+
+        int active = branches;
+
+        //expand every unfinished branch one building at a time until at most one branch is left unfinished
+        outer:
+        while(active > 1){
+            for(int i = 0; i < branches && active > 1; i++){
+                Branch branch = searches[i];
+                if(branch.parent != i || branch.done) continue;
+
+                Building child = branch.queue.removeFirst();
                 for(Building next : child.getPowerConnections(outArray2)){
-                    //make sure it hasn't looped back, and that the new graph being assigned hasn't already been assigned
-                    //also skip closed tiles
-                    if(next != tile && next.power.graph != graph){
-                        graph.add(next);
-                        queue.addLast(next);
+                    if(next == tile) continue;
+
+                    int id = branchIds.get(next.pos(), -1);
+                    if(id == -1){
+                        branchIds.put(next.pos(), i);
+                        branch.queue.addLast(next);
+                        branch.members.add(next);
+                    }else{
+                        int other = find(id);
+                        if(other != i){
+                            //the two searches met; they are the same branch
+                            Branch merged = searches[other];
+                            merged.parent = i;
+                            while(merged.queue.size > 0) branch.queue.addLast(merged.queue.removeFirst());
+                            branch.members.addAll(merged.members);
+                            merged.members.clear();
+                            //a finished branch can only be reached through one-sided links; it was not counted as active anymore
+                            if(!merged.done) active --;
+                            if(active <= 1) break outer;
+                        }
                     }
                 }
+
+                if(branch.queue.isEmpty()){
+                    //fully explored, this is a separate branch
+                    branch.done = true;
+                    active --;
+                }
             }
+        }
+
+        //move every fully explored branch into its own graph; the remaining unfinished branch is kept here
+        for(int i = 0; i < branches; i++){
+            Branch branch = searches[i];
+            if(branch.parent != i || !branch.done) continue;
+
+            PowerGraph graph = new PowerGraph();
+            for(Building member : branch.members){
+                removeList(member);
+                member.power.graph = null;
+                graph.add(member);
+            }
+            graph.checkAdd();
             //update the graph once so direct consumers without any connected producer lose their power
             graph.update();
         }
 
-        //implied empty graph here
-        if(entity != null) entity.remove();
+        //do not hold on to removed buildings
+        for(int i = 0; i < branches; i++){
+            searches[i].reset(i);
+        }
+    }
+
+    private static int find(int id){
+        while(searches[id].parent != id){
+            id = searches[id].parent = searches[searches[id].parent].parent;
+        }
+        return id;
     }
 
     public int getId(){
@@ -382,7 +743,7 @@ public class PowerGraph{
     }
 
     @Deprecated
-    private boolean otherConsumersAreValid(Building build, Consume consumePower){
+    private static boolean otherConsumersAreValid(Building build, Consume consumePower){
         if(!build.enabled) return false;
 
         float f = build.efficiency;
@@ -409,4 +770,19 @@ public class PowerGraph{
         ", graphID=" + graphID +
         '}';
     }
+
+    /** A single branch search used when removing a building. Reused between removals. */
+    private static class Branch{
+        final Queue<Building> queue = new Queue<>();
+        final Seq<Building> members = new Seq<>(false, 16, Building.class);
+        int parent;
+        boolean done;
+
+        void reset(int id){
+            queue.clear();
+            members.clear();
+            parent = id;
+            done = false;
+        }
+    }
 }
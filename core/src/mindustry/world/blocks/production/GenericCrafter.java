@@ -34,6 +34,11 @@ public class GenericCrafter extends Block{
     /** if true, crafters with multiple liquid outputs will dump excess when there's still space for at least one liquid type */
     public boolean dumpExtraLiquid = true;
     public boolean ignoreLiquidFullness = false;
+    /**
+     * If true, crafters that are missing inputs and have nothing left to output go dormant until they receive items, liquids, power or configuration.
+     * Disable this in subclasses that do per-tick work outside of crafting.
+     */
+    public boolean sleepWhenIdle = true;
 
     public float craftTime = 80;
     public Effect craftEffect = Fx.none;
@@ -237,6 +242,29 @@ public class GenericCrafter extends Block{
             }
 
             dumpOutputs();
+
+            if(sleepWhenIdle && efficiency <= 0f && warmup <= 0f && shouldConsume() && !hasPendingOutput()){
+                sleep();
+            }else{
+                noSleep();
+            }
+        }
+
+        /** @return whether there are outputs left that still need to be dumped. */
+        public boolean hasPendingOutput(){
+            if(outputItems != null){
+                for(var output : outputItems){
+                    if(items.has(output.item)) return true;
+                }
+            }
+
+            if(outputLiquids != null){
+                for(var output : outputLiquids){
+                    if(liquids.get(output.liquid) > 0.0001f) return true;
+                }
+            }
+
+            return false;
         }
 
         @Override
@@ -18,6 +18,8 @@ public class HeatCrafter extends GenericCrafter{
 
     public HeatCrafter(String name){
         super(name);
+        //heat is polled from neighbors every tick
+        sleepWhenIdle = false;
     }
 
     @Override
@@ -10,9 +10,18 @@ import java.util.*;
 
 import static mindustry.Vars.*;
 
+/**
+ * Stores item amounts by item ID.
+ * Modules start out compact, as sorted parallel arrays of the item IDs and amounts that are actually stored, which covers
+ * conveyors and most crafters. Once more than {@link #maxCompact} item types are held, the module is promoted to a dense array
+ * of every item; {@link #clear()} makes it compact again.
+ */
 public class ItemModule extends BlockModule{
     public static final ItemModule empty = new ItemModule();
 
+    /** Maximum amount of item types stored before switching to a dense array. */
+    static final int maxCompact = 8;
+
     private static final int windowSize = 6;
     private static WindowedMean[] cacheFlow;
     private static float[] cacheSums;
@@ -21,7 +30,12 @@ public class ItemModule extends BlockModule{
     private static final Interval flowTimer = new Interval(2);
     private static final float pollScl = 20f;
 
-    protected int[] items = new int[content.items().size];
+    /** dense amounts of every item; null while the module is compact */
+    protected @Nullable int[] items;
+    /** compact storage: sorted item IDs with their amounts, the first {@link #size} entries are used */
+    private short[] ids = {};
+    private int[] amounts = {};
+    private int size;
     protected int total;
     protected int takeRotation;
 
@@ -36,23 +50,104 @@ public class ItemModule extends BlockModule{
     public void set(ItemModule other){
         total = other.total;
         takeRotation = other.takeRotation;
-        System.arraycopy(other.items, 0, items, 0, items.length);
+
+        if(other.items != null){
+            if(items == null) items = new int[length()];
+            System.arraycopy(other.items, 0, items, 0, items.length);
+        }else{
+            items = null;
+            size = other.size;
+            ids = Arrays.copyOf(other.ids, other.size);
+            amounts = Arrays.copyOf(other.amounts, other.size);
+        }
+    }
+
+    /** @return whether this module stores a dense array of every item, instead of only the items it holds. */
+    public boolean isDense(){
+        return items != null;
+    }
+
+    /** @return the index of an item in the compact arrays, or -(insertion point) - 1 if it is not stored. */
+    private int index(int id){
+        return Arrays.binarySearch(ids, 0, size, (short)id);
+    }
+
+    private void put(int id, int amount){
+        if(items != null){
+            items[id] = amount;
+            return;
+        }
+
+        int index = index(id);
+        if(index >= 0){
+            if(amount == 0){
+                //drop empty entries
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                System.arraycopy(amounts, index + 1, amounts, index, size - index - 1);
+                size--;
+            }else{
+                amounts[index] = amount;
+            }
+        }else if(amount != 0){
+            if(size >= maxCompact){
+                promote();
+                items[id] = amount;
+                return;
+            }
+
+            index = -index - 1;
+            if(size == ids.length){
+                int cap = Math.min(Math.max(size * 2, 1), maxCompact);
+                ids = Arrays.copyOf(ids, cap);
+                amounts = Arrays.copyOf(amounts, cap);
+            }
+
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            System.arraycopy(amounts, index, amounts, index + 1, size - index);
+            ids[index] = (short)id;
+            amounts[index] = amount;
+            size++;
+        }
+    }
+
+    private void promote(){
+        items = new int[length()];
+        for(int i = 0; i < size; i++){
+            items[ids[i]] = amounts[i];
+        }
+        ids = new short[0];
+        amounts = new int[0];
+        size = 0;
+    }
+
+    /** @return the first stored item ID at or after start (wrapping around) with an amount above 0, or -1. */
+    private int nextStored(int start, boolean inclusive){
+        int found = -1;
+        for(int i = 0; i < size; i++){
+            if(amounts[i] <= 0) continue;
+            if(ids[i] > start || (inclusive && ids[i] == start)) return ids[i];
+            //wrapped around; remember the lowest ID
+            if(found == -1 && ids[i] != start) found = ids[i];
+        }
+        return found;
     }
 
     public void updateFlow(){
         //update the flow at N fps at most
         if(flowTimer.get(1, pollScl)){
 
+            int length = length();
+
             if(flow == null){
-                if(cacheFlow == null || cacheFlow.length != items.length){
-                    cacheFlow = new WindowedMean[items.length];
-                    for(int i = 0; i < items.length; i++){
+                if(cacheFlow == null || cacheFlow.length != length){
+                    cacheFlow = new WindowedMean[length];
+                    for(int i = 0; i < length; i++){
                         cacheFlow[i] = new WindowedMean(windowSize);
                     }
-                    cacheSums = new float[items.length];
-                    displayFlow = new float[items.length];
+                    cacheSums = new float[length];
+                    displayFlow = new float[length];
                 }else{
-                    for(int i = 0; i < items.length; i++){
+                    for(int i = 0; i < length; i++){
                         cacheFlow[i].reset();
                     }
                     Arrays.fill(cacheSums, 0);
@@ -66,7 +161,7 @@ public class ItemModule extends BlockModule{
 
             boolean updateFlow = flowTimer.get(30);
 
-            for(int i = 0; i < items.length; i++){
+            for(int i = 0; i < length; i++){
                 flow[i].add(cacheSums[i]);
                 if(cacheSums[i] > 0){
                     cacheBits.set(i);
@@ -85,7 +180,7 @@ public class ItemModule extends BlockModule{
     }
 
     public int length(){
-        return items.length;
+        return content.items().size;
     }
 
     /** @return a specific item's flow rate in items/s; any value < 0 means not ready.*/
@@ -98,6 +193,13 @@ public class ItemModule extends BlockModule{
     }
 
     public void each(ItemConsumer cons){
+        if(items == null){
+            for(int i = 0; i < size; i++){
+                cons.accept(content.item(ids[i]), amounts[i]);
+            }
+            return;
+        }
+
         for(int i = 0; i < items.length; i++){
             if(items[i] != 0){
                 cons.accept(content.item(i), items[i]);
@@ -107,6 +209,15 @@ public class ItemModule extends BlockModule{
 
     public float sum(ItemCalculator calc){
         float sum = 0f;
+        if(items == null){
+            for(int i = 0; i < size; i++){
+                if(amounts[i] > 0){
+                    sum += calc.get(content.item(ids[i]), amounts[i]);
+                }
+            }
+            return sum;
+        }
+
         for(int i = 0; i < items.length; i++){
             if(items[i] > 0){
                 sum += calc.get(content.item(i), items[i]);
@@ -116,7 +227,7 @@ public class ItemModule extends BlockModule{
     }
 
     public boolean has(int id){
-        return items[id] > 0;
+        return get(id) > 0;
     }
 
     public boolean has(Item item){
@@ -181,6 +292,15 @@ public class ItemModule extends BlockModule{
 
     @Nullable
     public Item first(){
+        if(items == null){
+            for(int i = 0; i < size; i++){
+                if(amounts[i] > 0){
+                    return content.item(ids[i]);
+                }
+            }
+            return null;
+        }
+
         for(int i = 0; i < items.length; i++){
             if(items[i] > 0){
                 return content.item(i);
@@ -191,6 +311,16 @@ public class ItemModule extends BlockModule{
 
     @Nullable
     public Item take(){
+        if(items == null){
+            int id = nextStored(takeRotation >= length() ? takeRotation - length() : takeRotation, true);
+            if(id == -1) return null;
+
+            put(id, get(id) - 1);
+            total --;
+            takeRotation = id + 1;
+            return content.item(id);
+        }
+
         for(int i = 0; i < items.length; i++){
             int index = (i + takeRotation);
             if(index >= items.length) index -= items.length;
@@ -207,6 +337,11 @@ public class ItemModule extends BlockModule{
     /** Begins a speculative take operation. This returns the item that would be returned by #take(), but does not change state. */
     @Nullable
     public Item takeIndex(int takeRotation){
+        if(items == null){
+            int id = nextStored(takeRotation >= length() ? takeRotation - length() : takeRotation, true);
+            return id == -1 ? null : content.item(id);
+        }
+
         for(int i = 0; i < items.length; i++){
             int index = (i + takeRotation);
             if(index >= items.length) index -= items.length;
@@ -218,6 +353,11 @@ public class ItemModule extends BlockModule{
     }
 
     public int nextIndex(int takeRotation){
+        if(items == null){
+            int id = nextStored(takeRotation >= length() ? takeRotation - length() : takeRotation, false);
+            return id == -1 ? takeRotation : id;
+        }
+
         for(int i = 1; i < items.length; i++){
             int index = (i + takeRotation);
             if(index >= items.length) index -= items.length;
@@ -229,16 +369,19 @@ public class ItemModule extends BlockModule{
     }
 
     public int get(int id){
-        return items[id];
+        if(items != null) return items[id];
+
+        int index = index(id);
+        return index >= 0 ? amounts[index] : 0;
     }
 
     public int get(Item item){
-        return items[item.id];
+        return get(item.id);
     }
 
     public void set(Item item, int amount){
-        total += (amount - items[item.id]);
-        items[item.id] = amount;
+        total += (amount - get(item.id));
+        put(item.id, amount);
     }
 
     public void add(Iterable<ItemStack> stacks){
@@ -252,8 +395,15 @@ public class ItemModule extends BlockModule{
     }
 
     public void add(ItemModule items){
+        if(items.items == null){
+            for(int i = 0; i < items.size; i++){
+                add(items.ids[i], items.amounts[i]);
+            }
+            return;
+        }
+
         for(int i = 0; i < items.items.length; i++){
-            add(i, items.items[i]);
+            if(items.items[i] != 0) add(i, items.items[i]);
         }
     }
 
@@ -262,7 +412,11 @@ public class ItemModule extends BlockModule{
     }
 
     private void add(int item, int amount){
-        items[item] += amount;
+        if(items != null){
+            items[item] += amount;
+        }else{
+            put(item, get(item) + amount);
+        }
         total += amount;
         if(flow != null){
             cacheSums[item] += amount;
@@ -282,9 +436,10 @@ public class ItemModule extends BlockModule{
     }
 
     public void remove(Item item, int amount){
-        amount = Math.min(amount, items[item.id]);
+        int current = get(item.id);
+        amount = Math.min(amount, current);
 
-        items[item.id] -= amount;
+        put(item.id, current - amount);
         total -= amount;
     }
 
@@ -305,19 +460,37 @@ public class ItemModule extends BlockModule{
     }
 
     public void clear(){
-        Arrays.fill(items, 0);
+        //go back to compact storage
+        items = null;
+        size = 0;
         total = 0;
     }
 
     @Override
     public void write(Writes write){
         int amount = 0;
-        for(int item : items){
-            if(item > 0) amount++;
+        if(items == null){
+            for(int i = 0; i < size; i++){
+                if(amounts[i] > 0) amount++;
+            }
+        }else{
+            for(int item : items){
+                if(item > 0) amount++;
+            }
         }
 
         write.s(amount);
 
+        if(items == null){
+            for(int i = 0; i < size; i++){
+                if(amounts[i] > 0){
+                    write.s(ids[i]); //item ID
+                    write.i(amounts[i]); //item amount
+                }
+            }
+            return;
+        }
+
         for(int i = 0; i < items.length; i++){
             if(items[i] > 0){
                 write.s(i); //item ID
@@ -328,17 +501,22 @@ public class ItemModule extends BlockModule{
 
     @Override
     public void read(Reads read, boolean legacy){
-        //just in case, reset items
-        Arrays.fill(items, 0);
         int count = legacy ? read.ub() : read.s();
-        total = 0;
+
+        //just in case, reset items; modules that stay dense keep their array, so cores do not reallocate it on every read
+        if(items != null && count > maxCompact && items.length == length()){
+            Arrays.fill(items, 0);
+            total = 0;
+        }else{
+            clear();
+        }
 
         for(int j = 0; j < count; j++){
             int itemid = legacy ? read.ub() : read.s();
             int itemamount = read.i();
             Item item = content.item(itemid);
             if(item != null){
-                items[item.id] = itemamount;
+                put(item.id, itemamount);
                 total += itemamount;
             }
         }
@@ -356,14 +534,12 @@ public class ItemModule extends BlockModule{
     public String toString(){
         var res = new StringBuilder();
         res.append("ItemModule{");
-        boolean any = false;
-        for(int i = 0; i < items.length; i++){
-            if(items[i] != 0){
-                res.append(content.items().get(i).name).append(":").append(items[i]).append(",");
-                any = true;
-            }
-        }
-        if(any){
+        boolean[] any = {false};
+        each((item, amount) -> {
+            res.append(item.name).append(":").append(amount).append(",");
+            any[0] = true;
+        });
+        if(any[0]){
             res.setLength(res.length() - 1);
         }
         res.append("}");
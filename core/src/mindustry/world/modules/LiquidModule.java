@@ -10,7 +10,15 @@ import java.util.*;
 
 import static mindustry.Vars.*;
 
+/**
+ * Stores liquid amounts by liquid ID.
+ * Like {@link ItemModule}, modules start out compact and only switch to a dense array of every liquid once more than
+ * {@link #maxCompact} liquid types are held; most blocks only ever hold one.
+ */
 public class LiquidModule extends BlockModule{
+    /** Maximum amount of liquid types stored before switching to a dense array. */
+    static final int maxCompact = 4;
+
     private static final int windowSize = 3;
     private static final Interval flowTimer = new Interval(2);
     private static final float pollScl = 20f;
@@ -20,23 +28,30 @@ public class LiquidModule extends BlockModule{
     private static float[] displayFlow;
     private static final Bits cacheBits = new Bits();
 
-    private float[] liquids = new float[content.liquids().size];
+    /** dense amounts of every liquid; null while the module is compact */
+    private @Nullable float[] liquids;
+    /** compact storage: sorted liquid IDs with their amounts, the first {@link #size} entries are used */
+    private short[] ids = {};
+    private float[] amounts = {};
+    private int size;
     private Liquid current = content.liquid(0);
 
     private @Nullable WindowedMean[] flow;
 
     public void updateFlow(){
         if(flowTimer.get(1, pollScl)){
+            int length = content.liquids().size;
+
             if(flow == null){
-                if(cacheFlow == null || cacheFlow.length != liquids.length){
-                    cacheFlow = new WindowedMean[liquids.length];
-                    for(int i = 0; i < liquids.length; i++){
+                if(cacheFlow == null || cacheFlow.length != length){
+                    cacheFlow = new WindowedMean[length];
+                    for(int i = 0; i < length; i++){
                         cacheFlow[i] = new WindowedMean(windowSize);
                     }
-                    cacheSums = new float[liquids.length];
-                    displayFlow = new float[liquids.length];
+                    cacheSums = new float[length];
+                    displayFlow = new float[length];
                 }else{
-                    for(int i = 0; i < liquids.length; i++){
+                    for(int i = 0; i < length; i++){
                         cacheFlow[i].reset();
                     }
                     Arrays.fill(cacheSums, 0);
@@ -50,7 +65,7 @@ public class LiquidModule extends BlockModule{
 
             boolean updateFlow = flowTimer.get(30);
 
-            for(int i = 0; i < liquids.length; i++){
+            for(int i = 0; i < length; i++){
                 flow[i].add(cacheSums[i]);
                 if(cacheSums[i] > 0){
                     cacheBits.set(i);
@@ -83,32 +98,86 @@ public class LiquidModule extends BlockModule{
     }
 
     public void reset(Liquid liquid, float amount){
-        Arrays.fill(liquids, 0f);
-        liquids[liquid.id] = amount;
+        clear();
+        put(liquid.id, amount);
         current = liquid;
     }
 
     public void set(Liquid liquid, float amount){
-        if(amount >= liquids[current.id]){
+        if(amount >= get(current)){
             current = liquid;
         }
-        liquids[liquid.id] = amount;
+        put(liquid.id, amount);
     }
 
     public float currentAmount(){
-        return liquids[current.id];
+        return get(current);
     }
 
     public float get(Liquid liquid){
-        return liquids[liquid.id];
+        if(liquids != null) return liquids[liquid.id];
+
+        int index = Arrays.binarySearch(ids, 0, size, liquid.id);
+        return index >= 0 ? amounts[index] : 0f;
+    }
+
+    /** @return whether this module stores a dense array of every liquid, instead of only the liquids it holds. */
+    public boolean isDense(){
+        return liquids != null;
     }
 
     public void clear(){
-        Arrays.fill(liquids, 0);
+        //go back to compact storage
+        liquids = null;
+        size = 0;
+    }
+
+    private void put(int id, float amount){
+        if(liquids != null){
+            liquids[id] = amount;
+            return;
+        }
+
+        int index = Arrays.binarySearch(ids, 0, size, (short)id);
+        if(index >= 0){
+            if(amount == 0f){
+                //drop empty entries
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                System.arraycopy(amounts, index + 1, amounts, index, size - index - 1);
+                size--;
+            }else{
+                amounts[index] = amount;
+            }
+        }else if(amount != 0f){
+            if(size >= maxCompact){
+                liquids = new float[content.liquids().size];
+                for(int i = 0; i < size; i++){
+                    liquids[ids[i]] = amounts[i];
+                }
+                liquids[id] = amount;
+                ids = new short[0];
+                amounts = new float[0];
+                size = 0;
+                return;
+            }
+
+            index = -index - 1;
+            if(size == ids.length){
+                int cap = Math.min(Math.max(size * 2, 1), maxCompact);
+                ids = Arrays.copyOf(ids, cap);
+                amounts = Arrays.copyOf(amounts, cap);
+            }
+
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            System.arraycopy(amounts, index, amounts, index + 1, size - index);
+            ids[index] = (short)id;
+            amounts[index] = amount;
+            size++;
+        }
     }
 
     public void add(Liquid liquid, float amount){
-        liquids[liquid.id] += amount;
+        put(liquid.id, get(liquid) + amount);
         current = liquid;
 
         if(flow != null){
@@ -124,10 +193,19 @@ public class LiquidModule extends BlockModule{
 
     public void remove(Liquid liquid, float amount){
         //cap to prevent negative removal
-        add(liquid, Math.max(-amount, -liquids[liquid.id]));
+        add(liquid, Math.max(-amount, -get(liquid)));
     }
 
     public void each(LiquidConsumer cons){
+        if(liquids == null){
+            for(int i = 0; i < size; i++){
+                if(amounts[i] > 0){
+                    cons.accept(content.liquid(ids[i]), amounts[i]);
+                }
+            }
+            return;
+        }
+
         for(int i = 0; i < liquids.length; i++){
             if(liquids[i] > 0){
                 cons.accept(content.liquid(i), liquids[i]);
@@ -137,6 +215,15 @@ public class LiquidModule extends BlockModule{
 
     public float sum(LiquidCalculator calc){
         float sum = 0f;
+        if(liquids == null){
+            for(int i = 0; i < size; i++){
+                if(amounts[i] > 0){
+                    sum += calc.get(content.liquid(ids[i]), amounts[i]);
+                }
+            }
+            return sum;
+        }
+
         for(int i = 0; i < liquids.length; i++){
             if(liquids[i] > 0){
                 sum += calc.get(content.liquid(i), liquids[i]);
@@ -148,12 +235,28 @@ public class LiquidModule extends BlockModule{
     @Override
     public void write(Writes write){
         int amount = 0;
-        for(float liquid : liquids){
-            if(liquid > 0) amount++;
+        if(liquids == null){
+            for(int i = 0; i < size; i++){
+                if(amounts[i] > 0) amount++;
+            }
+        }else{
+            for(float liquid : liquids){
+                if(liquid > 0) amount++;
+            }
         }
 
         write.s(amount); //amount of liquids
 
+        if(liquids == null){
+            for(int i = 0; i < size; i++){
+                if(amounts[i] > 0){
+                    write.s(ids[i]); //liquid ID
+                    write.f(amounts[i]); //liquid amount
+                }
+            }
+            return;
+        }
+
         for(int i = 0; i < liquids.length; i++){
             if(liquids[i] > 0){
                 write.s(i); //liquid ID
@@ -164,16 +267,21 @@ public class LiquidModule extends BlockModule{
 
     @Override
     public void read(Reads read, boolean legacy){
-        Arrays.fill(liquids, 0);
         int count = legacy ? read.ub() : read.s();
 
+        //modules that stay dense keep their array
+        if(liquids != null && count > maxCompact && liquids.length == content.liquids().size){
+            Arrays.fill(liquids, 0f);
+        }else{
+            clear();
+        }
+
         for(int j = 0; j < count; j++){
             Liquid liq = content.liquid(legacy ? read.ub() : read.s());
             float amount = read.f();
             if(liq != null){
-                int liquidid = liq.id;
-                liquids[liquidid] = amount;
-                if(amount > liquids[current.id]){
+                put(liq.id, amount);
+                if(amount > get(current)){
                     current = liq;
                 }
             }
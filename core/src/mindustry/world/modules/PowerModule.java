@@ -11,7 +11,15 @@ public class PowerModule extends BlockModule{
      * In case of buffered consumers, this is the percentage of power stored in relation to the maximum capacity.
      */
     public float status = 0.0f;
+    /**
+     * Power production and request of this building without delta, and whether its other consumers are valid; for batteries, whether they are enabled.
+     * Refreshed by {@link PowerGraph#refresh}, so that graphs do not have to poll their members.
+     */
+    public float production, request;
+    public boolean valid;
     public boolean init;
+    /** Positions of this building in the member lists of its graph, so that it can be removed in constant time. -1 if it is not in that list. */
+    public int allIndex = -1, producerIndex = -1, consumerIndex = -1, batteryIndex = -1;
     public PowerGraph graph = new PowerGraph();
     public IntSeq links = new IntSeq();
 
@@ -2,6 +2,7 @@ package mindustry.server;
 
 import arc.*;
 import arc.files.*;
+import arc.math.*;
 import arc.func.Cons;
 import arc.struct.*;
 import arc.util.*;
@@ -24,6 +25,7 @@ import mindustry.net.Administration.*;
 import mindustry.net.Packets.*;
 import mindustry.net.*;
 import mindustry.type.*;
+import mindustry.world.blocks.logic.LogicBlock.*;
 
 import java.io.*;
 import java.net.*;
@@ -115,6 +117,8 @@ public class ServerControl implements ApplicationListener{
 
         //update log level
         Config.debug.set(Config.debug.bool());
+        Config.parallelPower.set(Config.parallelPower.bool());
+        Config.conveyorSegments.set(Config.conveyorSegments.bool());
 
         try{
             lastMode = Gamemode.valueOf(Core.settings.getString("lastServerMode", "survival"));
@@ -238,9 +242,9 @@ public class ServerControl implements ApplicationListener{
                     Fi file = saveDirectory.child(fileName);
                     info("正在进行自动保存...");
 
+                    //compression and file writing happen in the background, so large maps do not freeze the server
                     try{
-                        SaveIO.save(file);
-                        info("自动保存已完成。");
+                        SaveIO.saveAsync(file, () -> info("自动保存已完成。"), e -> err("自动保存失败。", e));
                     }catch(Throwable e){
                         err("自动保存失败。", e);
                     }
@@ -345,6 +349,7 @@ public class ServerControl implements ApplicationListener{
 
         handler.register("exit", "退出服务器程序", arg -> {
             info("正在关闭服务器。");
+            SaveIO.awaitSaves();
             net.dispose();
             Core.app.exit();
         });
@@ -458,19 +463,21 @@ public class ServerControl implements ApplicationListener{
                 info("状态：&r服务器关闭");
             }else{
                 info("状态：");
-                info("  在地图 &fi@ / 第 @ 波玩游戏", Strings.capitalize(state.map.plainName())), state.wave);
+                info("  在地图 &fi@ / 第 @ 波玩游戏", Strings.capitalize(state.map.plainName()), state.wave);
 
                 if(state.rules.waves){
                     info("  还有 @ 秒到下一波。", (int)(state.wavetime / 60));
                 }
-                info("  @ 个单位 / @ 个敌人", Groups.unit.size()), state.enemies);
+                info("  @ 个单位 / @ 个敌人", Groups.unit.size(), state.enemies);
+                info("  @ 个活跃建筑 / @ 个休眠建筑", Groups.build.size(), Building.sleepingCount());
+                info("  @ 个计时器 (@ 个即将触发)", world.timers.size(), world.timers.levelSize(0));
 
                 info("  @ 帧/秒，@ MB 已使用。", Core.graphics.getFramesPerSecond(), Core.app.getJavaHeap() / 1024 / 1024);
 
                 if(Groups.player.size() > 0){
-                    info("  玩家：@", Groups.player.size()));
+                    info("  玩家：@", Groups.player.size());
                     for(Player p : Groups.player){
-                        info("    @ @ / @", p.admin())) ? "&r[A]&c" : "&b[P]&c", p.plainName(), p.uuid());
+                        info("    @ @ / @", p.admin() ? "&r[A]&c" : "&b[P]&c", p.plainName(), p.uuid());
                     }
                 }else{
                     info("  无玩家连接。");
@@ -984,19 +991,24 @@ public class ServerControl implements ApplicationListener{
 
             Fi file = saveDirectory.child(arg[0] + "." + saveExtension);
 
-            Core.app.post(() -> {
-                SaveIO.save(file);
-                info("已保存到 @。", file);
-            });
+            Core.app.post(() -> SaveIO.saveAsync(file, () -> info("已保存到 @。", file), e -> err("保存失败。", e)));
         });
 
         handler.register("saves", "列出保存目录中的所有存档。", arg -> {
             info("保存文件： ");
+            //meta comes from the index, so unchanged saves are not opened
+            SaveIndex index = SaveIO.indexFor(saveDirectory);
             for(Fi file : saveDirectory.list()){
                 if(file.extension().equals(saveExtension)){
-                    info("| @", file.nameWithoutExtension())));
+                    StringMap tags = index.tags(file);
+                    if(tags == null){
+                        info("| @ &fi(无效)", file.nameWithoutExtension());
+                    }else{
+                        info("| @ &fi@ / 波次 @", file.nameWithoutExtension(), tags.get("mapname", "?"), tags.get("wave", "?"));
+                    }
                 }
             }
+            index.flush();
         });
 
         handler.register("gameover", "强制结束游戏。", arg -> {
@@ -1052,6 +1064,49 @@ public class ServerControl implements ApplicationListener{
             info("@ MB 收集完成。内存使用量现为 @ MB。", pre - post, post);
         });
 
+        handler.register("logicprof", "<on/off/clear/top/dump/throttle> [参数...]", "分析逻辑处理器的指令开销。on [采样间隔] / top [数量] / dump [文件名] / throttle <x> <y> <比例>", arg -> {
+            switch(arg[0]){
+                case "on" -> {
+                    int interval = arg.length > 1 && Strings.canParsePositiveInt(arg[1]) ? Strings.parseInt(arg[1]) : logicProfiler.sampleInterval;
+                    logicProfiler.start(interval);
+                    info("逻辑分析器已启用，采样间隔为 @。", logicProfiler.sampleInterval);
+                }
+                case "off" -> {
+                    logicProfiler.stop();
+                    info("逻辑分析器已停用。");
+                }
+                case "clear" -> {
+                    logicProfiler.clear();
+                    info("逻辑分析数据已清除。");
+                }
+                case "top" -> {
+                    int count = arg.length > 1 && Strings.canParsePositiveInt(arg[1]) ? Strings.parseInt(arg[1]) : 10;
+                    info(logicProfiler.report(count));
+                }
+                case "dump" -> {
+                    Fi file = logFolder.child((arg.length > 1 ? arg[1] : "logic-profile-" + LocalDateTime.now().format(autosaveDate)) + ".txt");
+                    logicProfiler.dump(file);
+                    info("逻辑分析报告已写入 @。", file.absolutePath());
+                }
+                case "throttle" -> {
+                    String[] params = arg.length > 1 ? arg[1].split(" ") : new String[0];
+                    if(params.length < 3 || !Strings.canParseInt(params[0]) || !Strings.canParseInt(params[1]) || !Strings.canParseFloat(params[2])){
+                        err("用法：logicprof throttle <x> <y> <比例>");
+                        return;
+                    }
+
+                    if(!(world.build(Strings.parseInt(params[0]), Strings.parseInt(params[1])) instanceof LogicBuild build)){
+                        err("该位置没有逻辑处理器。");
+                        return;
+                    }
+
+                    build.throttle = Mathf.clamp(Strings.parseFloat(params[2]), 0f, 1f);
+                    info("处理器 @ (@, @) 的指令比例已设为 @。", build.block.name, build.tileX(), build.tileY(), build.throttle);
+                }
+                default -> err("无效的操作。可用：on/off/clear/top/dump/throttle");
+            }
+        });
+
         handler.register("yes", "Run the last suggested incorrect command.", arg -> {
             if(suggested == null){
                 err("没有任何可以确认的内容。");
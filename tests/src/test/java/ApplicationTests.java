@@ -1,6 +1,7 @@
 import arc.*;
 import arc.backend.headless.*;
 import arc.files.*;
+import arc.math.*;
 import arc.math.geom.*;
 import arc.struct.*;
 import arc.util.*;
@@ -12,11 +13,14 @@ import mindustry.content.*;
 import mindustry.core.*;
 import mindustry.core.GameState.*;
 import mindustry.ctype.*;
+import mindustry.entities.*;
+import mindustry.entities.bullet.*;
 import mindustry.entities.units.*;
 import mindustry.game.*;
 import mindustry.gen.*;
 import mindustry.io.*;
 import mindustry.io.SaveIO.*;
+import mindustry.logic.*;
 import mindustry.maps.*;
 import mindustry.mod.*;
 import mindustry.mod.Mods.*;
@@ -24,8 +28,13 @@ import mindustry.net.*;
 import mindustry.net.Packets.*;
 import mindustry.type.*;
 import mindustry.world.*;
+import mindustry.world.blocks.defense.turrets.*;
+import mindustry.world.blocks.distribution.*;
+import mindustry.world.blocks.distribution.Conveyor.*;
+import mindustry.world.blocks.environment.*;
 import mindustry.world.blocks.payloads.*;
 import mindustry.world.blocks.storage.*;
+import mindustry.world.modules.*;
 import org.json.*;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.params.*;
@@ -130,6 +139,7 @@ public class ApplicationTests{
     @BeforeEach
     void resetWorld(){
         Time.setDeltaProvider(() -> 1f);
+        Conveyor.mergeSegments = true;
         logic.reset();
         state.set(State.menu);
     }
@@ -375,6 +385,41 @@ public class ApplicationTests{
         assertTrue(state.teams.playerCores().size > 0);
     }
 
+    @Test
+    void saveAsyncKeepsSnapshot(){
+        world.loadMap(testMap);
+
+        Unit unit = UnitTypes.dagger.spawn(Team.sharded, 20f, 30f);
+        unit.health = 30f;
+
+        Fi file = saveDirectory.child("async.msav");
+        SaveIO.saveAsync(file, null, null);
+        //compression and writing happen later, but the save must contain the state at the time of the call
+        unit.health = 10f;
+        SaveIO.awaitSaves();
+
+        resetWorld();
+        SaveIO.load(file);
+
+        Unit spawned = Groups.unit.find(u -> u.type == UnitTypes.dagger);
+        assertNotNull(spawned, "Saved daggers must persist");
+        assertEquals(30f, spawned.health, "The save must not contain changes made after it was started");
+    }
+
+    @Test
+    void saveMeta(){
+        world.loadMap(testMap);
+        state.wave = 7;
+
+        Fi file = saveDirectory.child("meta.msav");
+        SaveIO.save(file);
+
+        assertTrue(SaveIO.isSaveValid(file));
+        SaveMeta meta = SaveIO.getMeta(file);
+        assertEquals(7, meta.wave);
+        assertEquals(state.map.name(), meta.tags.get("mapname"));
+    }
+
     void updateBlocks(int times){
         for(Tile tile : world.tiles){
             if(tile.build != null && tile.isCenter()){
@@ -559,6 +604,46 @@ public class ApplicationTests{
         assertEquals(Blocks.air, world.tile(0, 0).block());
     }
 
+    @Test
+    void spawnsFollowOverlayChanges(){
+        world.loadMap(testMap);
+        state.set(State.playing);
+        Seq<Tile> spawns = spawner.getSpawns().copy();
+
+        world.tile(12, 12).setOverlay(Blocks.oreCopper);
+        world.tile(16, 16).setOverlay(Blocks.spawn);
+        spawns.add(world.tile(16, 16));
+
+        spawner.reset();
+        assertEquals(spawns.size, spawner.getSpawns().size);
+        for(Tile spawn : spawns){
+            assertTrue(spawner.getSpawns().contains(spawn, true), "Missing spawn " + spawn);
+        }
+    }
+
+    @Test
+    void fogBitsRanges(){
+        int length = 300;
+        FogControl.FogBits bits = new FogControl.FogBits(length);
+        boolean[] expected = new boolean[length];
+
+        int[][] ranges = {{0, 1}, {5, 5}, {3, 64}, {63, 65}, {70, 128}, {130, 200}, {256, 300}};
+        for(int[] range : ranges){
+            bits.set(range[0], range[1]);
+            for(int i = range[0]; i < range[1]; i++) expected[i] = true;
+        }
+
+        for(int i = 0; i < length; i++){
+            assertEquals(expected[i], bits.get(i), "Bit " + i);
+        }
+        assertFalse(bits.get(length + 100));
+
+        bits.clear();
+        for(int i = 0; i < length; i++){
+            assertFalse(bits.get(i));
+        }
+    }
+
     @Test
     void conveyorCrash(){
         world.loadMap(testMap);
@@ -568,6 +653,657 @@ public class ApplicationTests{
         world.tile(0, 0).build.acceptStack(Items.copper, 1000, null);
     }
 
+    @Test
+    void compactItemModule(){
+        ItemModule dense = new ItemModule(), compact = new ItemModule();
+
+        //promote one module by storing every item once
+        for(Item item : content.items()) dense.add(item, 1);
+        for(Item item : content.items()) dense.remove(item, 1);
+
+        assertTrue(dense.isDense());
+        assertFalse(compact.isDense());
+
+        Rand rand = new Rand(0);
+        int used = 5;
+        for(int i = 0; i < 2000; i++){
+            Item item = content.item(rand.random(used - 1) * 3);
+            int amount = rand.random(1, 10);
+
+            switch(rand.random(3)){
+                case 0 -> {
+                    dense.add(item, amount);
+                    compact.add(item, amount);
+                }
+                case 1 -> {
+                    dense.remove(item, amount);
+                    compact.remove(item, amount);
+                }
+                case 2 -> assertEquals(dense.take(), compact.take());
+                default -> {
+                    int rotation = rand.random(content.items().size);
+                    assertEquals(dense.takeIndex(rotation), compact.takeIndex(rotation));
+                    assertEquals(dense.nextIndex(rotation), compact.nextIndex(rotation));
+                }
+            }
+
+            assertEquals(dense.total(), compact.total());
+            assertEquals(dense.first(), compact.first());
+            for(Item other : content.items()){
+                assertEquals(dense.get(other), compact.get(other), "Amount of " + other);
+            }
+        }
+
+        assertFalse(compact.isDense(), "Only " + used + " item types were stored");
+
+        for(Item item : content.items()) compact.add(item, 2);
+        assertTrue(compact.isDense());
+        assertEquals(content.items().size * 2, compact.total());
+
+        compact.clear();
+        assertFalse(compact.isDense());
+        assertEquals(0, compact.total());
+    }
+
+    @Test
+    void denseItemModuleKeepsArrayOnRead(){
+        class DenseModule extends ItemModule{
+            int[] array(){
+                return items;
+            }
+        }
+
+        DenseModule module = new DenseModule();
+        for(Item item : content.items()) module.add(item, 3);
+        int[] array = module.array();
+        assertNotNull(array);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        module.write(new Writes(new DataOutputStream(bytes)));
+        module.read(new Reads(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))), false);
+
+        assertSame(array, module.array(), "Reading many item types must not reallocate the dense array");
+        assertEquals(content.items().size * 3, module.total());
+        for(Item item : content.items()){
+            assertEquals(3, module.get(item));
+        }
+    }
+
+    @Test
+    void idleCrafterSleeps(){
+        world.loadMap(testMap);
+        state.set(State.playing);
+
+        Tile tile = world.tile(5, 5);
+        tile.setBlock(Blocks.graphitePress, Team.sharded);
+        Building build = tile.build;
+        build.updateProximity();
+
+        int sleeping = Building.sleepingCount();
+        for(int i = 0; i < 120; i++){
+            Time.update();
+            if(build.isAdded()) build.update();
+        }
+
+        assertTrue(build.isSleeping(), "Crafter without inputs must go dormant");
+        assertEquals(sleeping + 1, Building.sleepingCount());
+
+        build.handleStack(Items.coal, 10, null);
+        assertFalse(build.isSleeping(), "Receiving items must wake the crafter up");
+
+        for(int i = 0; i < 600; i++){
+            Time.update();
+            if(build.isAdded()) build.update();
+        }
+
+        assertTrue(build.items.has(Items.graphite), "Crafter must work after waking up");
+
+        tile.remove();
+        assertEquals(sleeping, Building.sleepingCount());
+    }
+
+    @Test
+    void logicWakesDormantBuildings(){
+        world.loadMap(testMap);
+        state.set(State.playing);
+
+        Tile tile = world.tile(5, 5);
+        tile.setBlock(Blocks.graphitePress, Team.sharded);
+        Building build = tile.build;
+        build.updateProximity();
+
+        for(int i = 0; i < 120; i++){
+            Time.update();
+            if(build.isAdded()) build.update();
+        }
+        assertTrue(build.isSleeping());
+
+        //disabled buildings stay awake, so that enabling them again is noticed
+        build.control(LAccess.enabled, 0, 0, 0, 0);
+        assertFalse(build.isSleeping(), "Disabling must wake the crafter up");
+        for(int i = 0; i < 120; i++){
+            Time.update();
+            if(build.isAdded()) build.update();
+        }
+        assertFalse(build.isSleeping(), "Disabled buildings must not go dormant");
+
+        build.control(LAccess.enabled, 1, 0, 0, 0);
+        build.setProp(Items.coal, 10);
+        for(int i = 0; i < 600; i++){
+            Time.update();
+            if(build.isAdded()) build.update();
+        }
+        assertTrue(build.items.has(Items.graphite), "Crafter must work after being enabled");
+    }
+
+    @Test
+    void timerWheel(){
+        TimerWheel wheel = new TimerWheel();
+        LongSeq fired = new LongSeq();
+        int[] periodic = {0};
+
+        long[] delays = {1, 5, 63, 64, 65, 200, 4095, 4096, 5000, 300000, 20000000};
+        for(long delay : delays){
+            wheel.schedule(delay, () -> fired.add(wheel.ticks()));
+        }
+        TimerWheel.Handle cancelled = wheel.schedule(100, () -> fail("Cancelled timers must not run"));
+        TimerWheel.Handle repeat = wheel.schedule(10, 30, () -> periodic[0]++);
+
+        assertEquals(delays.length + 2, wheel.size());
+        cancelled.cancel();
+        assertFalse(cancelled.scheduled());
+
+        for(int i = 0; i < 100; i++){
+            wheel.update(1f);
+        }
+        //10, 40, 70, 100
+        assertEquals(4, periodic[0]);
+        repeat.cancel();
+
+        for(int i = 0; i < 400; i++){
+            wheel.update(1000f / 400f);
+        }
+        wheel.update(20000000f);
+
+        assertEquals(delays.length, fired.size, "Every timer must run exactly once");
+        for(int i = 0; i < delays.length; i++){
+            assertEquals(delays[i], fired.get(i), "Timer must run on its tick");
+        }
+        assertEquals(0, wheel.size());
+        assertEquals(4, periodic[0]);
+    }
+
+    @Test
+    void idleTurretSleeps(){
+        world.loadMap(testMap);
+        state.set(State.playing);
+
+        Tile tile = world.tile(5, 5);
+        tile.setBlock(Blocks.duo, Team.sharded);
+        Building build = tile.build;
+        build.handleStack(Items.copper, 10, null);
+
+        int sleeping = Building.sleepingCount();
+        for(int i = 0; i < 120; i++){
+            Time.update();
+            world.timers.update(Time.delta);
+            if(build.isAdded()) build.update();
+        }
+
+        assertTrue(build.isSleeping(), "Turret without targets must sleep between target searches");
+        assertEquals(sleeping + 1, Building.sleepingCount());
+
+        boolean woke = false;
+        for(int i = 0; i < 60 && !woke; i++){
+            Time.update();
+            world.timers.update(Time.delta);
+            woke = build.isAdded();
+        }
+        assertTrue(woke, "Turret must wake up for its next target search");
+
+        tile.remove();
+        assertEquals(sleeping, Building.sleepingCount());
+        assertEquals(0, world.timers.size(), "Removed buildings must not keep wake timers");
+    }
+
+    @Test
+    void regionMask(){
+        RegionMask mask = new RegionMask(13, 9);
+        IntSeq marked = IntSeq.with(0, 7, 8, 12, 13 * 7 + 3, 13 * 8 + 12);
+        marked.each(pos -> mask.set(pos, true));
+        mask.set(7, true);
+        mask.set(12, false);
+        marked.removeValue(12);
+
+        assertEquals(marked.size, mask.size());
+
+        IntSeq found = new IntSeq();
+        for(int region = 0; region < mask.regions(); region++){
+            long bits = mask.mask(region);
+            while(bits != 0){
+                int bit = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                found.add(mask.tile(region, bit));
+            }
+        }
+
+        found.sort();
+        assertEquals(marked, found);
+        assertTrue(mask.get(13 * 8 + 12));
+        assertFalse(mask.get(12));
+    }
+
+    @Test
+    void puddlePass(){
+        world.loadMap(testMap);
+        state.set(State.playing);
+
+        for(int x = 10; x <= 30; x++){
+            for(int y = 10; y <= 30; y++){
+                Tile tile = world.tile(x, y);
+                tile.setFloor((Floor)Blocks.stone);
+                tile.setAir();
+            }
+        }
+
+        Tile center = world.tile(20, 20);
+        Puddles.deposit(center, Liquids.water, Puddles.maxLiquid);
+        assertEquals(1, world.tiles.activePuddles.size());
+        assertTrue(world.tiles.activePuddles.get(center.array()));
+
+        boolean spread = false;
+        for(int i = 0; i < 3000 && Groups.puddle.size() > 0; i++){
+            Time.update();
+            Puddles.update();
+
+            assertEquals(Groups.puddle.size(), world.tiles.activePuddles.size(), "Every puddle must be marked in the active regions");
+            spread |= Groups.puddle.size() > 1;
+        }
+
+        assertTrue(spread, "Full puddles must spread to their neighbours");
+        assertEquals(0, Groups.puddle.size(), "Puddles must evaporate");
+        assertEquals(0, world.tiles.activePuddles.size());
+    }
+
+    @Test
+    void delayedFragsOutliveBullet(){
+        world.loadMap(testMap);
+        state.set(State.playing);
+
+        BulletType type = ((ItemTurret)Blocks.ripple).ammoTypes.get(Items.plastanium);
+        Bullet bullet = type.create(null, Team.sharded, 40f, 40f, 0f);
+        bullet.collided.add(1, 2, 3);
+        type.delayFrags(bullet, bullet.x, bullet.y);
+
+        bullet.hit = true;
+        bullet.remove();
+        assertTrue(bullet.collided.isEmpty(), "Pooled bullets must not keep pierced entities");
+
+        //free the bullet, so its owner and team are gone before the fragments spawn
+        Groups.update();
+        assertEquals(0, Groups.bullet.count(b -> b.type == type.fragBullet));
+
+        BulletType.createDelayedFrags();
+        assertEquals(type.fragBullets, Groups.bullet.count(b -> b.type == type.fragBullet && b.team == Team.sharded));
+    }
+
+    @Test
+    void effectBatching(){
+        EffectBatcher batcher = new EffectBatcher();
+        batcher.add(Fx.hitBulletSmall, 100f, 100f, 0f, null, false);
+        batcher.add(Fx.hitBulletSmall, 100f, 100f, 0f, null, false);
+        batcher.add(Fx.hitBulletSmall, 120f, 100f, 45f, null, false);
+        batcher.add(Fx.hitBulletSmall, 100f, 100f, 0f, Tmp.c1.set(1f, 0f, 0f, 1f), false);
+        batcher.add(Fx.smoke, 110f, 90f, 0f, null, true);
+        batcher.add(Fx.smoke, 5000f, 5000f, 0f, null, false);
+
+        NetConnection con = new NetConnection("test"){
+            @Override
+            public void send(Object object, boolean reliable){}
+
+            @Override
+            public void close(){}
+        };
+        con.viewX = con.viewY = 100f;
+        con.viewWidth = con.viewHeight = 200f;
+
+        Seq<byte[]> unreliable = new Seq<>(), reliable = new Seq<>();
+        batcher.prepare();
+        batcher.write(con, (data, isReliable) -> (isReliable ? reliable : unreliable).add(data));
+        assertEquals(1, unreliable.size);
+        assertEquals(1, reliable.size);
+
+        //the duplicate and the effect outside the view are dropped, and the first two share a header
+        Seq<String> played = new Seq<>();
+        EffectBatcher.read(unreliable.first(), (effect, x, y, rotation, color) -> played.add(effect.id + " " + x + " " + y + " " + rotation + " " + color));
+        assertEquals(3, played.size);
+        assertEquals(3 * 12 + 2 * 8, unreliable.first().length);
+        assertTrue(played.contains(Fx.hitBulletSmall.id + " 120.0 100.0 45.0 ffffffff"));
+        assertTrue(played.contains(Fx.hitBulletSmall.id + " 100.0 100.0 0.0 ff0000ff"));
+
+        played.clear();
+        EffectBatcher.read(reliable.first(), (effect, x, y, rotation, color) -> played.add(effect.id + " " + x + " " + y));
+        assertEquals(Seq.with(Fx.smoke.id + " 110.0 90.0"), played);
+    }
+
+    @Test
+    void statusMultipliers(){
+        world.loadMap(testMap);
+        state.set(State.playing);
+
+        Unit unit = UnitTypes.flare.spawn(Team.sharded, 20f, 20f);
+        unit.apply(StatusEffects.slow, 30f);
+        Time.update();
+        unit.update();
+
+        assertTrue(unit.hasEffect(StatusEffects.slow));
+        assertEquals(StatusEffects.slow.speedMultiplier, unit.speedMultiplier);
+
+        //abilities change multipliers every update, which must not accumulate
+        unit.healthMultiplier += 1f;
+        Time.update();
+        unit.update();
+        assertEquals(1f, unit.healthMultiplier);
+
+        unit.statusDamageMultiplier(3f);
+        Time.update();
+        unit.update();
+        assertEquals(3f, unit.damageMultiplier);
+
+        //dynamic multipliers can be changed without changing the set of effects
+        unit.statusDamageMultiplier(2f);
+        for(int i = 0; i < 40; i++){
+            Time.update();
+            unit.update();
+        }
+
+        assertFalse(unit.hasEffect(StatusEffects.slow), "Slow must expire");
+        assertTrue(unit.hasEffect(StatusEffects.dynamic));
+        assertEquals(1f, unit.speedMultiplier);
+        assertEquals(2f, unit.damageMultiplier);
+    }
+
+    @Test
+    void threatGridTargeting(){
+        world.loadMap(testMap);
+        state.set(State.playing);
+
+        Rand rand = new Rand(3);
+        for(int i = 0; i < 300; i++){
+            UnitTypes.dagger.spawn(Team.crux, rand.random(-20f, world.unitWidth() + 20f), rand.random(-20f, world.unitHeight() + 20f));
+        }
+        state.teams.updateTeamStats();
+
+        for(int i = 0; i < 100; i++){
+            float x = rand.random(world.unitWidth()), y = rand.random(world.unitHeight()), range = rand.random(20f, 400f);
+
+            Unit expected = null;
+            for(Unit unit : Groups.unit){
+                if(unit.team == Team.crux && unit.within(x, y, range + unit.hitSize/2f) && (expected == null || unit.dst2(x, y) < expected.dst2(x, y))){
+                    expected = unit;
+                }
+            }
+
+            assertEquals(expected, Units.bestEnemy(Team.sharded, x, y, range, u -> true, UnitSorts.closest), "Grid search must find the closest unit in range");
+        }
+    }
+
+    @Test
+    void tileDamageMatchesRayCast(){
+        Rand rand = new Rand(7);
+        int count = 80;
+        int[] xs = new int[count], ys = new int[count];
+        float[] radii = new float[count], amounts = new float[count];
+        for(int i = 0; i < count; i++){
+            xs[i] = 10 + rand.random(40);
+            ys[i] = 10 + rand.random(40);
+            radii[i] = rand.random(0.5f, 12f);
+            amounts[i] = rand.random(20f, 900f);
+        }
+        //same explosion twice in one frame
+        xs[1] = xs[0];
+        ys[1] = ys[0];
+        radii[1] = radii[0];
+        amounts[1] = amounts[0];
+
+        fillDamageArea();
+        for(int i = 0; i < count; i++){
+            legacyTileDamage(Team.crux, xs[i], ys[i], radii[i], amounts[i]);
+        }
+        float[] expected = damageAreaHealth();
+
+        fillDamageArea();
+        for(int i = 0; i < count; i++){
+            Damage.tileDamage(Team.crux, xs[i], ys[i], radii[i], amounts[i]);
+        }
+        Damage.applyTileDamage();
+        float[] actual = damageAreaHealth();
+
+        assertArrayEquals(expected, actual, "Batched tile damage must match casting each explosion separately");
+    }
+
+    void fillDamageArea(){
+        world.loadMap(testMap);
+        state.set(State.playing);
+
+        for(int x = 10; x < 50; x += 2){
+            for(int y = 10; y < 50; y += 2){
+                int type = ((x * 7 + y * 13) / 2) % 4;
+                if(type == 0){
+                    world.tile(x, y).setBlock(Blocks.thoriumWallLarge, Team.sharded);
+                }else if(type != 3){
+                    for(int i = 0; i < 4; i++){
+                        world.tile(x + i % 2, y + i / 2).setBlock(type == 1 ? Blocks.copperWall : Blocks.titaniumWall, Team.sharded);
+                    }
+                }
+            }
+        }
+    }
+
+    float[] damageAreaHealth(){
+        float[] health = new float[40 * 40];
+        for(int i = 0; i < health.length; i++){
+            Building build = world.build(10 + i % 40, 10 + i / 40);
+            health[i] = build == null ? -1f : build.health;
+        }
+        return health;
+    }
+
+    /** Ray cast of {@link Damage#tileDamage(Team, int, int, float, float)} as it was before explosions were batched. */
+    static void legacyTileDamage(Team team, int x, int y, float baseRadius, float damage){
+        IntFloatMap damages = new IntFloatMap();
+        var in = world.build(x, y);
+        if(in != null && in.team != team && in.block.size > 1 && in.health > damage){
+            in.damage(team, damage * Math.min((in.block.size), baseRadius * 0.4f));
+            return;
+        }
+
+        float radius = Math.min(baseRadius, 100), rad2 = radius * radius;
+        int rays = Mathf.ceil(radius * 2 * Mathf.pi);
+        double spacing = Math.PI * 2.0 / rays;
+
+        for(int i = 0; i <= rays; i++){
+            float dealt = 0f;
+            int startX = x;
+            int startY = y;
+            int endX = x + (int)(Math.cos(spacing * i) * radius), endY = y + (int)(Math.sin(spacing * i) * radius);
+
+            int xDist = Math.abs(endX - startX);
+            int yDist = -Math.abs(endY - startY);
+            int xStep = (startX < endX ? +1 : -1);
+            int yStep = (startY < endY ? +1 : -1);
+            int error = xDist + yDist;
+
+            while(startX != endX || startY != endY){
+                var build = world.build(startX, startY);
+                if(build != null && build.team != team){
+                    float edgeScale = 0.6f;
+                    float mult = (1f-(Mathf.dst2(startX, startY, x, y) / rad2) + edgeScale) / (1f + edgeScale);
+                    float next = damage * mult - dealt;
+                    int p = Point2.pack(startX, startY);
+                    damages.put(p, Math.max(damages.get(p), next));
+                    dealt += build.health;
+
+                    if(next - dealt <= 0){
+                        break;
+                    }
+                }
+
+                if(2 * error - yDist > xDist - 2 * error){
+                    error += yDist;
+                    startX += xStep;
+                }else{
+                    error += xDist;
+                    startY += yStep;
+                }
+            }
+        }
+
+        for(var e : damages){
+            var build = world.build(Point2.x(e.key), Point2.y(e.key));
+            if(build != null){
+                build.damage(team, e.value);
+            }
+        }
+    }
+
+    @Test
+    void cloggedConveyorsSleep(){
+        //segments would put the whole line to sleep regardless; this checks conveyors that update on their own
+        Conveyor.mergeSegments = false;
+        world.loadMap(testMap);
+        state.set(State.playing);
+        state.rules.limitMapArea = false;
+
+        int length = 20;
+        boolean[] open = {false};
+        int[] received = {0};
+
+        world.tile(0, 0).setBlock(Blocks.itemSource, Team.sharded);
+        world.tile(0, 0).build.configureAny(Items.copper);
+
+        Seq<Building> entities = Seq.with(world.tile(0, 0).build);
+        for(int i = 0; i < length; i++){
+            world.tile(i + 1, 0).setBlock(Blocks.conveyor, Team.sharded, 0);
+            entities.add(world.tile(i + 1, 0).build);
+        }
+
+        world.tile(length + 1, 0).setBlock(new Block("___"){{
+            hasItems = true;
+            destructible = true;
+            buildType = () -> new Building(){
+                @Override
+                public void handleItem(Building source, Item item){
+                    received[0] ++;
+                }
+
+                @Override
+                public boolean acceptItem(Building source, Item item){
+                    return open[0];
+                }
+            };
+        }}, Team.sharded);
+
+        entities.each(Building::updateProximity);
+
+        Runnable tick = () -> {
+            Time.update();
+            //sleeping buildings are not in the update loop
+            entities.each(b -> { if(b.isAdded()) b.update(); });
+        };
+
+        for(int i = 0; i < 60 * 30; i++) tick.run();
+
+        //every conveyor is backed up and asleep, except the last one, which faces a block that is not a conveyor
+        assertEquals(1, entities.count(b -> b instanceof ConveyorBuild && b.isAdded()));
+
+        open[0] = true;
+        for(int i = 0; i < 60 * 10; i++) tick.run();
+
+        assertTrue(received[0] > 0, "Items must flow again after the line is unblocked");
+        assertEquals(length, entities.count(b -> b instanceof ConveyorBuild && b.isAdded()));
+    }
+
+    @Test
+    void conveyorSegmentsMatchSeparateConveyors(){
+        int length = 24;
+        int[] received = new int[3];
+        float[][] lines = new float[3][];
+
+        //the same line, first with conveyors that update on their own, then as one segment
+        //the last run builds the line from front to back; segments always move back to front, so it must match the others
+        for(int run = 0; run < 3; run++){
+            resetWorld();
+            Conveyor.mergeSegments = run >= 1;
+            boolean frontToBack = run == 2;
+            world.loadMap(testMap);
+            state.set(State.playing);
+            state.rules.limitMapArea = false;
+
+            int index = run;
+
+            world.tile(0, 0).setBlock(Blocks.itemSource, Team.sharded);
+            world.tile(0, 0).build.configureAny(Items.copper);
+            //feeds into the side of the line
+            world.tile(length / 2, 1).setBlock(Blocks.itemSource, Team.sharded);
+            world.tile(length / 2, 1).build.configureAny(Items.lead);
+
+            Seq<Building> entities = Seq.with(world.tile(0, 0).build, world.tile(length / 2, 1).build);
+            for(int i = 0; i < length; i++){
+                int x = frontToBack ? length - i : i + 1;
+                world.tile(x, 0).setBlock(Blocks.conveyor, Team.sharded, 0);
+                entities.add(world.tile(x, 0).build);
+            }
+
+            //only accepts items half of the time, so that the line keeps backing up and draining
+            world.tile(length + 1, 0).setBlock(new Block("___"){{
+                hasItems = true;
+                destructible = true;
+                buildType = () -> new Building(){
+                    @Override
+                    public void handleItem(Building source, Item item){
+                        received[index] ++;
+                    }
+
+                    @Override
+                    public boolean acceptItem(Building source, Item item){
+                        return (state.updateId / 90) % 2 == 0;
+                    }
+                };
+            }}, Team.sharded);
+
+            entities.each(Building::updateProximity);
+
+            for(int i = 0; i < 60 * 20; i++){
+                Time.update();
+                state.updateId ++;
+                entities.each(b -> { if(b.isAdded()) b.update(); });
+            }
+
+            if(run >= 1){
+                ConveyorBuild front = (ConveyorBuild)world.build(length, 0);
+                assertEquals(length - 1, front.segment.size, "The whole line must be one segment");
+                assertEquals(1, entities.count(b -> b instanceof ConveyorBuild && b.isAdded()), "Only the front of the segment should update");
+            }
+
+            FloatSeq line = new FloatSeq();
+            for(int x = 1; x <= length; x++){
+                ConveyorBuild conv = (ConveyorBuild)world.build(x, 0);
+                line.addAll(conv.len, conv.clogHeat);
+                for(int i = 0; i < conv.len; i++){
+                    line.addAll(conv.ids[i].id, conv.xs[i], conv.ys[i]);
+                }
+            }
+            lines[run] = line.toArray();
+        }
+
+        assertTrue(received[0] > 0);
+        assertEquals(received[0], received[1], "Segments must move as many items as separate conveyors");
+        assertArrayEquals(lines[0], lines[1], "Items must end up in the same places");
+        assertEquals(received[0], received[2], "Segments built from front to back must move like ones built from back to front");
+        assertArrayEquals(lines[0], lines[2], "Segments built from front to back must move like ones built from back to front");
+    }
+
     @Test
     void conveyorBench(){
         int[] itemsa = {0};
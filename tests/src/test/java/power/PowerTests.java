@@ -1,9 +1,12 @@
 package power;
 
 import arc.math.*;
+import arc.struct.*;
 import arc.util.*;
 import mindustry.*;
 import mindustry.core.*;
+import mindustry.gen.*;
+import mindustry.logic.*;
 import mindustry.world.*;
 import mindustry.world.blocks.power.PowerGenerator.*;
 import mindustry.world.blocks.power.*;
@@ -136,5 +139,183 @@ public class PowerTests extends PowerTestFixture{
                 assertEquals(0f, consumerTile.block().consPower.efficiency(consumerTile.build));
             }
         }
+
+        /** Makes sure a graph in a steady state reacts when a member reports a change in production, and does not poll its members otherwise. */
+        @Test
+        void steadyGraphReactsToProductionChange(){
+            Tile producerTile = createFakeTile(0, 0, createFakeProducerBlock(10.0f));
+            GeneratorBuild producer = (GeneratorBuild)producerTile.build;
+            producer.productionEfficiency = 1.0f;
+            Tile consumerTile = createFakeTile(0, 1, createFakeDirectConsumer(5.0f));
+
+            PowerGraph powerGraph = new PowerGraph();
+            powerGraph.add(producerTile.build);
+            powerGraph.add(consumerTile.build);
+
+            for(int i = 0; i < 3; i++){
+                powerGraph.update();
+                assertEquals(1.0f, consumerTile.build.power.status, Mathf.FLOAT_ROUNDING_ERROR);
+            }
+
+            producer.productionEfficiency = 0.25f;
+            powerGraph.update();
+            assertEquals(1.0f, consumerTile.build.power.status, Mathf.FLOAT_ROUNDING_ERROR);
+
+            producer.updatePowerState();
+            powerGraph.update();
+            assertEquals(0.5f, consumerTile.build.power.status, Mathf.FLOAT_ROUNDING_ERROR);
+            assertEquals(2.5f * Time.delta, powerGraph.getLastPowerProduced(), Mathf.FLOAT_ROUNDING_ERROR);
+
+            producer.productionEfficiency = 1.0f;
+            producer.updatePowerState();
+            powerGraph.update();
+            assertEquals(1.0f, consumerTile.build.power.status, Mathf.FLOAT_ROUNDING_ERROR);
+        }
+
+        /** Makes sure a battery disabled by logic stops being drained right away, even though batteries never update. */
+        @Test
+        void disabledBatteryStopsCounting(){
+            Tile batteryTile = createFakeTile(0, 0, createFakeBattery(100f));
+            Tile consumerTile = createFakeTile(0, 1, createFakeDirectConsumer(10f));
+            batteryTile.build.power.status = 0.5f;
+
+            PowerGraph powerGraph = new PowerGraph();
+            powerGraph.add(batteryTile.build);
+            powerGraph.add(consumerTile.build);
+            powerGraph.update();
+
+            assertEquals(1f, consumerTile.build.power.status, Mathf.FLOAT_ROUNDING_ERROR);
+            float stored = batteryTile.build.power.status;
+            assertTrue(stored < 0.5f, "Battery must be drained while enabled");
+
+            batteryTile.build.control(LAccess.enabled, 0, 0, 0, 0);
+            powerGraph.update();
+
+            assertEquals(0f, consumerTile.build.power.status, Mathf.FLOAT_ROUNDING_ERROR);
+            assertEquals(stored, batteryTile.build.power.status, Mathf.FLOAT_ROUNDING_ERROR, "Disabled battery must not be drained");
+            assertEquals(0f, powerGraph.getLastPowerStored(), Mathf.FLOAT_ROUNDING_ERROR);
+
+            batteryTile.build.control(LAccess.enabled, 1, 0, 0, 0);
+            powerGraph.update();
+
+            assertEquals(1f, consumerTile.build.power.status, Mathf.FLOAT_ROUNDING_ERROR);
+        }
+    }
+
+    @Nested
+    class PowerGraphSplitTests{
+        Block generator = createFakeProducerBlock(1f);
+
+        Building[] createGrid(int width, int height){
+            Building[] builds = new Building[width * height];
+            PowerGraph graph = new PowerGraph();
+            for(int i = 0; i < builds.length; i++){
+                builds[i] = createFakeTile(i % width, i / width, generator).build;
+                graph.add(builds[i]);
+            }
+            for(int i = 0; i < builds.length; i++){
+                int x = i % width, y = i / width;
+                if(x + 1 < width) connect(builds[i], builds[i + 1]);
+                if(y + 1 < height) connect(builds[i], builds[i + width]);
+            }
+            return builds;
+        }
+
+        void connect(Building a, Building b){
+            a.proximity.add(b);
+            b.proximity.add(a);
+        }
+
+        /** Removes a building in the same order the game does: graph first, then proximity. */
+        void removeBuilding(Building build){
+            build.power.graph.remove(build);
+            for(Building other : build.proximity){
+                other.proximity.remove(build, true);
+            }
+            build.proximity.clear();
+        }
+
+        /** Checks graph membership against a plain BFS over power connections. */
+        void assertMembership(Seq<Building> remaining){
+            for(Building build : remaining){
+                ObjectSet<Building> component = new ObjectSet<>();
+                Queue<Building> queue = new Queue<>();
+                queue.addLast(build);
+                component.add(build);
+                while(queue.size > 0){
+                    for(Building next : queue.removeFirst().getPowerConnections(new Seq<>())){
+                        if(component.add(next)) queue.addLast(next);
+                    }
+                }
+
+                PowerGraph graph = build.power.graph;
+                assertEquals(component.size, graph.all.size, "Graph size does not match connected component");
+                for(Building member : graph.all){
+                    assertTrue(component.contains(member), "Graph contains a building outside of its component");
+                    assertSame(graph, member.power.graph, "Member does not reference its graph");
+                }
+                assertEquals(graph.all.size, graph.producers.size);
+                for(int i = 0; i < graph.all.size; i++){
+                    assertEquals(i, graph.all.get(i).power.allIndex, "Stale index in the member list");
+                    assertEquals(i, graph.producers.get(i).power.producerIndex, "Stale index in the producer list");
+                }
+            }
+        }
+
+        @Test
+        void removingChainMiddleSplits(){
+            Building[] chain = createGrid(5, 1);
+            PowerGraph original = chain[0].power.graph;
+
+            removeBuilding(chain[2]);
+
+            assertNotSame(chain[1].power.graph, chain[3].power.graph);
+            assertSame(chain[0].power.graph, chain[1].power.graph);
+            assertSame(chain[3].power.graph, chain[4].power.graph);
+            assertTrue(chain[0].power.graph == original || chain[3].power.graph == original, "One branch should keep the original graph");
+            assertFalse(chain[2].power.graph.all.contains(chain[1], true));
+            assertMembership(Seq.with(chain[0], chain[1], chain[3], chain[4]));
+        }
+
+        @Test
+        void removingLeafKeepsGraph(){
+            Building[] chain = createGrid(4, 1);
+            PowerGraph original = chain[0].power.graph;
+
+            removeBuilding(chain[3]);
+
+            assertSame(original, chain[0].power.graph);
+            assertEquals(3, original.all.size);
+            assertNotSame(original, chain[3].power.graph);
+        }
+
+        @Test
+        void removingLoopMemberKeepsGraph(){
+            Building[] grid = createGrid(3, 3);
+            PowerGraph original = grid[0].power.graph;
+
+            //the center has four neighbors which are all still connected through the outer ring
+            removeBuilding(grid[4]);
+
+            Seq<Building> remaining = Seq.with(grid);
+            remaining.remove(grid[4], true);
+            for(Building build : remaining){
+                assertSame(original, build.power.graph);
+            }
+            assertMembership(remaining);
+        }
+
+        @Test
+        void randomRemovalsMatchBFS(){
+            Building[] grid = createGrid(12, 12);
+            Seq<Building> remaining = Seq.with(grid);
+            Rand rand = new Rand(0);
+
+            while(remaining.size > 1){
+                Building removed = remaining.remove(rand.random(remaining.size - 1));
+                removeBuilding(removed);
+                assertMembership(remaining);
+            }
+        }
     }
 }